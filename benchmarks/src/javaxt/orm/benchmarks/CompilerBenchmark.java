@@ -0,0 +1,59 @@
+package javaxt.orm.benchmarks;
+import java.util.concurrent.TimeUnit;
+import javaxt.orm.Compiler;
+import javaxt.orm.Model;
+import org.openjdk.jmh.annotations.*;
+
+//******************************************************************************
+//**  CompilerBenchmark
+//******************************************************************************
+/**
+ *   Used to measure how long it takes to generate and compile Java classes
+ *   for a set of models, with and without batch compilation.
+ *
+ ******************************************************************************/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CompilerBenchmark {
+
+    @Param({"10", "100"})
+    public int numModels;
+
+    @Param({"true", "false"})
+    public boolean batch;
+
+    private String json;
+    private Model[] models;
+
+
+  //**************************************************************************
+  //** setup
+  //**************************************************************************
+    @Setup(Level.Trial)
+    public void setup(){
+        json = Schemas.getJson(numModels);
+    }
+
+
+  //**************************************************************************
+  //** createModels
+  //**************************************************************************
+    @Setup(Level.Invocation)
+    public void createModels(){
+        models = Schemas.getModels(json);
+    }
+
+
+  //**************************************************************************
+  //** compile
+  //**************************************************************************
+    @Benchmark
+    public Class[] compile() throws Exception {
+        return new Compiler(models, batch).getClasses();
+    }
+}
@@ -0,0 +1,69 @@
+package javaxt.orm.benchmarks;
+import java.util.concurrent.TimeUnit;
+import javaxt.orm.Model;
+import javaxt.orm.Schema;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+//******************************************************************************
+//**  GeneratorBenchmark
+//******************************************************************************
+/**
+ *   Used to measure how long it takes to generate Java code and SQL for
+ *   synthetic schemas of various sizes. New models are created before each
+ *   invocation because models cache the code they generate.
+ *
+ ******************************************************************************/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int numModels;
+
+    private String json;
+    private Model[] models;
+
+
+  //**************************************************************************
+  //** setup
+  //**************************************************************************
+    @Setup(Level.Trial)
+    public void setup(){
+        json = Schemas.getJson(numModels);
+    }
+
+
+  //**************************************************************************
+  //** createModels
+  //**************************************************************************
+    @Setup(Level.Invocation)
+    public void createModels(){
+        models = Schemas.getModels(json);
+    }
+
+
+  //**************************************************************************
+  //** getJavaCode
+  //**************************************************************************
+    @Benchmark
+    public void getJavaCode(Blackhole bh){
+        for (Model model : models){
+            bh.consume(model.getJavaCode());
+        }
+    }
+
+
+  //**************************************************************************
+  //** getSQLScript
+  //**************************************************************************
+    @Benchmark
+    public String getSQLScript(){
+        return new Schema(models).getSQLScript();
+    }
+}
@@ -0,0 +1,94 @@
+package javaxt.orm.benchmarks;
+import java.util.concurrent.TimeUnit;
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.io.*;
+import org.openjdk.jmh.annotations.*;
+
+//******************************************************************************
+//**  GeometryBenchmark
+//******************************************************************************
+/**
+ *   Used to compare WKT and WKB encoding of geometry values. Generated models
+ *   transfer geometries to and from the database as WKT by default and as
+ *   WKB when the "geometry" option is set to "wkb".
+ *
+ ******************************************************************************/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int numPoints;
+
+    private Geometry geom;
+    private String wkt;
+    private byte[] wkb;
+
+
+  //**************************************************************************
+  //** setup
+  //**************************************************************************
+    @Setup(Level.Trial)
+    public void setup(){
+        geom = createPolygon(numPoints);
+        wkt = new WKTWriter().write(geom);
+        wkb = new WKBWriter().write(geom);
+    }
+
+
+  //**************************************************************************
+  //** createPolygon
+  //**************************************************************************
+  /** Returns a polygon with a given number of points.
+   */
+    public static Polygon createPolygon(int numPoints){
+        Coordinate[] coords = new Coordinate[numPoints+1];
+        for (int i=0; i<numPoints; i++){
+            double angle = 2*Math.PI*i/numPoints;
+            coords[i] = new Coordinate(-77.0 + Math.cos(angle), 38.9 + Math.sin(angle));
+        }
+        coords[numPoints] = coords[0];
+        return new GeometryFactory(new PrecisionModel(), 4326).createPolygon(coords);
+    }
+
+
+  //**************************************************************************
+  //** readWKT
+  //**************************************************************************
+    @Benchmark
+    public Geometry readWKT() throws ParseException {
+        return new WKTReader().read(wkt);
+    }
+
+
+  //**************************************************************************
+  //** readWKB
+  //**************************************************************************
+    @Benchmark
+    public Geometry readWKB() throws ParseException {
+        return new WKBReader().read(wkb);
+    }
+
+
+  //**************************************************************************
+  //** writeWKT
+  //**************************************************************************
+    @Benchmark
+    public String writeWKT(){
+        return new WKTWriter().write(geom);
+    }
+
+
+  //**************************************************************************
+  //** writeWKB
+  //**************************************************************************
+    @Benchmark
+    public byte[] writeWKB(){
+        return new WKBWriter().write(geom);
+    }
+}
@@ -0,0 +1,125 @@
+package javaxt.orm.benchmarks;
+import java.lang.reflect.*;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.*;
+import org.openjdk.jmh.annotations.*;
+
+//******************************************************************************
+//**  GeometryLoadBenchmark
+//******************************************************************************
+/**
+ *   Used to compare the code generated to decode geometry values with and
+ *   without the "geometry" option set to "wkb". Models are loaded from a
+ *   stubbed PreparedStatement via the generated load() method so that the
+ *   benchmark covers the same path used by find() and stream(), without the
+ *   network overhead of a database.
+ *
+ ******************************************************************************/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeometryLoadBenchmark {
+
+    @Param({"wkt", "wkb"})
+    public String format;
+
+    @Param({"1000", "100000", "500000"})
+    public int numPoints;
+
+    private Method load;
+    private PreparedStatement stmt;
+
+
+  //**************************************************************************
+  //** setup
+  //**************************************************************************
+  /** Used to compile a model with a geometry field and create a statement
+   *  that returns a polygon in the format selected by the generated code.
+   */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String json =
+        "{\"package\": \"com.example.benchmarks." + format + "\", \"geometry\": \"" + format + "\", " +
+        "\"models\": {\"Parcel\": {\"fields\": [" +
+        "{\"name\": \"name\", \"type\": \"string\"}, {\"name\": \"shape\", \"type\": \"geo\"}" +
+        "]}}}";
+        Class<?> c = new javaxt.orm.Compiler(Schemas.getModels(json)).getClasses()[0];
+        load = c.getDeclaredMethod("load", PreparedStatement.class, javaxt.sql.Connection.class, HashMap.class);
+        load.setAccessible(true);
+
+        Geometry geom = GeometryBenchmark.createPolygon(numPoints);
+        HashMap<String, Object> row = new HashMap<>();
+        row.put("id", 1L);
+        row.put("name", "Parcel 1");
+        row.put("shape", format.equals("wkb") ? new WKBWriter().write(geom) : new WKTWriter().write(geom));
+        stmt = createStatement(row);
+    }
+
+
+  //**************************************************************************
+  //** load
+  //**************************************************************************
+    @Benchmark
+    public Object load() throws Exception {
+        return load.invoke(null, stmt, null, new HashMap<>());
+    }
+
+
+  //**************************************************************************
+  //** createStatement
+  //**************************************************************************
+  /** Returns a PreparedStatement that returns a ResultSet with a single row.
+   */
+    private static PreparedStatement createStatement(HashMap<String, Object> row){
+        String[] columns = row.keySet().toArray(new String[row.size()]);
+
+        ResultSetMetaData metadata = proxy(ResultSetMetaData.class, (m, args) -> {
+            if (m.getName().equals("getColumnCount")) return columns.length;
+            if (m.getName().equals("getColumnLabel")) return columns[(Integer) args[0]-1];
+            return null;
+        });
+
+        return proxy(PreparedStatement.class, (m, args) -> {
+            if (!m.getName().equals("executeQuery")) return null;
+            boolean[] hasNext = new boolean[]{true};
+            return proxy(ResultSet.class, (m2, args2) -> {
+                switch (m2.getName()){
+                    case "next":
+                        boolean b = hasNext[0];
+                        hasNext[0] = false;
+                        return b;
+                    case "getMetaData": return metadata;
+                    case "getObject": return row.get(args2[0]);
+                    case "getLong": return row.get(args2[0]);
+                    default: return null;
+                }
+            });
+        });
+    }
+
+
+  //**************************************************************************
+  //** proxy
+  //**************************************************************************
+  /** Returns an implementation of a JDBC interface. Methods that are not
+   *  handled return null, false, or zero.
+   */
+    private static <T> T proxy(Class<T> c, java.util.function.BiFunction<Method, Object[], Object> fn){
+        return c.cast(Proxy.newProxyInstance(c.getClassLoader(), new Class<?>[]{c}, (obj, m, args) -> {
+            Object val = fn.apply(m, args);
+            if (val==null && m.getReturnType().isPrimitive()){
+                if (m.getReturnType()==boolean.class) return false;
+                if (m.getReturnType()==void.class) return null;
+                return 0;
+            }
+            return val;
+        }));
+    }
+}
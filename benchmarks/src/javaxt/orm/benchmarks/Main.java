@@ -0,0 +1,42 @@
+package javaxt.orm.benchmarks;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.*;
+
+//******************************************************************************
+//**  Main
+//******************************************************************************
+/**
+ *   Command line interface used to run the benchmarks. Accepts the same
+ *   options as the standard JMH runner. Results are saved in JSON format to
+ *   jmh-result.json by default so that they can be tracked across builds.
+ *
+ ******************************************************************************/
+
+public class Main {
+
+
+  //**************************************************************************
+  //** main
+  //**************************************************************************
+  /** Entry point for the application
+   *  @param args Command line arguments (e.g. "-f 1 GeneratorBenchmark")
+   */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+
+
+      //Use the default JMH runner to print help and list benchmarks
+        if (cmd.shouldHelp() || cmd.shouldList()){
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+
+      //Save results as JSON unless another format or file is specified
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (!cmd.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        if (!cmd.getResult().hasValue()) options.result("jmh-result.json");
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,180 @@
+package javaxt.orm.benchmarks;
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import javaxt.json.JSONObject;
+import javaxt.orm.Compiler;
+import org.openjdk.jmh.annotations.*;
+
+//******************************************************************************
+//**  ModelBenchmark
+//******************************************************************************
+/**
+ *   Used to measure JSON and binary serialization of generated models. The
+ *   models are compiled once per trial and invoked via reflection.
+ *
+ ******************************************************************************/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBenchmark {
+
+    private static final String models =
+    "{\"package\": \"com.example.benchmarks\", \"serialization\": \"binary\", \"models\": {" +
+    "  \"Person\": {" +
+    "    \"fields\": [" +
+    "      {\"name\": \"firstName\", \"type\": \"string\"}," +
+    "      {\"name\": \"lastName\", \"type\": \"string\"}," +
+    "      {\"name\": \"birthday\", \"type\": \"int\"}," +
+    "      {\"name\": \"score\", \"type\": \"double\"}," +
+    "      {\"name\": \"salary\", \"type\": \"decimal\"}," +
+    "      {\"name\": \"active\", \"type\": \"boolean\"}," +
+    "      {\"name\": \"lastModified\", \"type\": \"date\"}," +
+    "      {\"name\": \"info\", \"type\": \"json\"}," +
+    "      {\"name\": \"tags\", \"type\": \"string[]\"}," +
+    "      {\"name\": \"country\", \"type\": \"Country\"}" +
+    "    ]," +
+    "    \"hasMany\": [" +
+    "      {\"model\": \"Phone\", \"name\": \"phoneNumbers\"}" +
+    "    ]" +
+    "  }," +
+    "  \"Country\": {" +
+    "    \"fields\": [" +
+    "      {\"name\": \"name\", \"type\": \"string\"}," +
+    "      {\"name\": \"code\", \"type\": \"string\"}" +
+    "    ]" +
+    "  }," +
+    "  \"Phone\": {" +
+    "    \"fields\": [" +
+    "      {\"name\": \"number\", \"type\": \"string\"}," +
+    "      {\"name\": \"primary\", \"type\": \"boolean\"}" +
+    "    ]" +
+    "  }" +
+    "}}";
+
+    private static final String person =
+    "{\"id\": 1, \"firstName\": \"John\", \"lastName\": \"Smith\", \"birthday\": 19800101," +
+    " \"score\": 87.5, \"salary\": 123456.78, \"active\": true," +
+    " \"lastModified\": \"2024-01-01T12:00:00.000Z\"," +
+    " \"info\": {\"title\": \"Engineer\", \"skills\": [\"java\", \"sql\"]}," +
+    " \"tags\": [\"a\", \"b\", \"c\"]," +
+    " \"country\": {\"id\": 1, \"name\": \"United States\", \"code\": \"US\"}," +
+    " \"phoneNumbers\": [{\"id\": 1, \"number\": \"555-1234\", \"primary\": true}," +
+    " {\"id\": 2, \"number\": \"555-5678\", \"primary\": false}]}";
+
+    private Constructor<?> jsonConstructor;
+    private Method toJson;
+    private Method writeJson;
+    private Method readJson;
+    private Method writeTo;
+    private Method readFrom;
+
+    private Object obj;
+    private String json;
+    private byte[] bytes;
+
+
+  //**************************************************************************
+  //** setup
+  //**************************************************************************
+  /** Used to compile the models and create a Person used by the benchmarks.
+   */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Class<?> c = null;
+        for (Class<?> cls : new Compiler(Schemas.getModels(models)).getClasses()){
+            if (cls.getSimpleName().equals("Person")) c = cls;
+        }
+
+        jsonConstructor = c.getConstructor(JSONObject.class);
+        toJson = c.getMethod("toJson");
+        writeJson = c.getMethod("writeJson", Appendable.class);
+        readJson = c.getMethod("readJson", Reader.class);
+        writeTo = c.getMethod("writeTo", DataOutput.class);
+        readFrom = c.getMethod("readFrom", DataInput.class);
+
+        obj = jsonConstructor.newInstance(new JSONObject(person));
+        json = writeJson();
+        bytes = writeTo();
+    }
+
+
+  //**************************************************************************
+  //** toJson
+  //**************************************************************************
+  /** Serializes the Person using the JSONObject returned by toJson().
+   */
+    @Benchmark
+    public String toJson() throws Exception {
+        return toJson.invoke(obj).toString();
+    }
+
+
+  //**************************************************************************
+  //** fromJson
+  //**************************************************************************
+  /** Deserializes the Person using the JSONObject constructor, which calls
+   *  update(JSONObject).
+   */
+    @Benchmark
+    public Object fromJson() throws Exception {
+        return jsonConstructor.newInstance(new JSONObject(json));
+    }
+
+
+  //**************************************************************************
+  //** roundTrip
+  //**************************************************************************
+  /** Serializes the Person with toJson() and deserializes the output with
+   *  update(JSONObject).
+   */
+    @Benchmark
+    public Object roundTrip() throws Exception {
+        return jsonConstructor.newInstance(new JSONObject(toJson.invoke(obj).toString()));
+    }
+
+
+  //**************************************************************************
+  //** writeJson
+  //**************************************************************************
+    @Benchmark
+    public String writeJson() throws Exception {
+        StringBuilder str = new StringBuilder(512);
+        writeJson.invoke(obj, str);
+        return str.toString();
+    }
+
+
+  //**************************************************************************
+  //** readJson
+  //**************************************************************************
+    @Benchmark
+    public Object readJson() throws Exception {
+        return readJson.invoke(null, new StringReader(json));
+    }
+
+
+  //**************************************************************************
+  //** writeTo
+  //**************************************************************************
+    @Benchmark
+    public byte[] writeTo() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        writeTo.invoke(obj, new DataOutputStream(out));
+        return out.toByteArray();
+    }
+
+
+  //**************************************************************************
+  //** readFrom
+  //**************************************************************************
+    @Benchmark
+    public Object readFrom() throws Exception {
+        return readFrom.invoke(null, new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
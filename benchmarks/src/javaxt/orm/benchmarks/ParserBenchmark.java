@@ -0,0 +1,52 @@
+package javaxt.orm.benchmarks;
+import java.util.concurrent.TimeUnit;
+import javaxt.orm.Model;
+import javaxt.orm.Parser;
+import org.openjdk.jmh.annotations.*;
+
+//******************************************************************************
+//**  ParserBenchmark
+//******************************************************************************
+/**
+ *   Used to measure how long it takes to parse model documents in JSON and
+ *   javascript formats. The "js" format contains only literals and is parsed
+ *   without a script engine. The "script" format requires a script engine.
+ *
+ ******************************************************************************/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"json", "js", "script"})
+    public String format;
+
+    @Param({"10", "100"})
+    public int numModels;
+
+    private String input;
+
+
+  //**************************************************************************
+  //** setup
+  //**************************************************************************
+    @Setup(Level.Trial)
+    public void setup(){
+        if (format.equals("json")) input = Schemas.getJson(numModels);
+        else if (format.equals("js")) input = Schemas.getJavaScript(numModels);
+        else input = Schemas.getScript(numModels);
+    }
+
+
+  //**************************************************************************
+  //** parse
+  //**************************************************************************
+    @Benchmark
+    public Model[] parse() throws Exception {
+        return new Parser(input).getModels();
+    }
+}
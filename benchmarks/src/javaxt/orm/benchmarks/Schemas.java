@@ -0,0 +1,122 @@
+package javaxt.orm.benchmarks;
+import javaxt.orm.Model;
+import javaxt.orm.Parser;
+
+//******************************************************************************
+//**  Schemas
+//******************************************************************************
+/**
+ *   Used to create synthetic model documents for the benchmarks.
+ *
+ ******************************************************************************/
+
+public class Schemas {
+
+
+  //**************************************************************************
+  //** getJson
+  //**************************************************************************
+  /** Returns a JSON document with a given number of models. Each model has
+   *  one field of every basic type. Models also reference the previous model
+   *  via a model field and a hasMany list.
+   */
+    public static String getJson(int numModels){
+        StringBuilder str = new StringBuilder();
+        str.append("{\"package\": \"com.example.benchmarks\", \"models\": ");
+        str.append(getModelDefinitions(numModels));
+        str.append("}");
+        return str.toString();
+    }
+
+
+  //**************************************************************************
+  //** getJavaScript
+  //**************************************************************************
+  /** Returns a javascript document with the same models as getJson().
+   */
+    public static String getJavaScript(int numModels){
+        StringBuilder str = new StringBuilder();
+        str.append("var package = \"com.example.benchmarks\";\r\n");
+        str.append("var models = ");
+        str.append(getModelDefinitions(numModels));
+        str.append(";\r\n");
+        return str.toString();
+    }
+
+
+  //**************************************************************************
+  //** getScript
+  //**************************************************************************
+  /** Returns a javascript document with the same models as getJson(). The
+   *  package name is computed with a function call so the document can only
+   *  be parsed with a script engine.
+   */
+    public static String getScript(int numModels){
+        StringBuilder str = new StringBuilder();
+        str.append("var package = [\"com\", \"example\", \"benchmarks\"].join(\".\");\r\n");
+        str.append("var models = ");
+        str.append(getModelDefinitions(numModels));
+        str.append(";\r\n");
+        return str.toString();
+    }
+
+
+  //**************************************************************************
+  //** getModels
+  //**************************************************************************
+  /** Returns a new set of models parsed from the JSON document. New models
+   *  are returned on every call so that code and SQL cached by the models are
+   *  not reused between benchmark invocations.
+   */
+    public static Model[] getModels(String json){
+        try{
+            return new Parser(json).getModels();
+        }
+        catch(Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+
+
+  //**************************************************************************
+  //** getModelDefinitions
+  //**************************************************************************
+  /** Returns a JSON object with model definitions.
+   */
+    private static String getModelDefinitions(int numModels){
+        StringBuilder str = new StringBuilder();
+        str.append("{\r\n");
+        for (int i=0; i<numModels; i++){
+            if (i>0) str.append(",\r\n");
+            str.append("  \"Model" + i + "\": {\r\n");
+            str.append("    \"fields\": [\r\n");
+            str.append("      {\"name\": \"name\", \"type\": \"string\"},\r\n");
+            str.append("      {\"name\": \"count\", \"type\": \"int\"},\r\n");
+            str.append("      {\"name\": \"total\", \"type\": \"long\"},\r\n");
+            str.append("      {\"name\": \"score\", \"type\": \"double\"},\r\n");
+            str.append("      {\"name\": \"amount\", \"type\": \"decimal\"},\r\n");
+            str.append("      {\"name\": \"active\", \"type\": \"boolean\"},\r\n");
+            str.append("      {\"name\": \"startDate\", \"type\": \"date\"},\r\n");
+            str.append("      {\"name\": \"info\", \"type\": \"json\"},\r\n");
+            str.append("      {\"name\": \"tags\", \"type\": \"string[]\"}");
+            if (i>0){
+                str.append(",\r\n");
+                str.append("      {\"name\": \"parent\", \"type\": \"Model" + (i-1) + "\"}\r\n");
+                str.append("    ],\r\n");
+                str.append("    \"hasMany\": [\r\n");
+                str.append("      {\"model\": \"Model" + (i-1) + "\", \"name\": \"children\"}\r\n");
+                str.append("    ],\r\n");
+            }
+            else{
+                str.append("\r\n");
+                str.append("    ],\r\n");
+            }
+            str.append("    \"constraints\": [\r\n");
+            str.append("      {\"name\": \"name\", \"required\": true, \"length\": 75}\r\n");
+            str.append("    ]\r\n");
+            str.append("  }");
+        }
+        str.append("\r\n}");
+        return str.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package javaxt.orm.benchmarks;
+import java.util.concurrent.TimeUnit;
+import javaxt.orm.Utils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+//******************************************************************************
+//**  UtilsBenchmark
+//******************************************************************************
+/**
+ *   Used to measure the string utilities used to convert field names to
+ *   column names and vice versa.
+ *
+ ******************************************************************************/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+    private String[] fieldNames = new String[]{
+        "id", "firstName", "lastModifiedDate", "userID", "phoneNumbers", "URLPath"
+    };
+
+    private String[] columnNames = new String[]{
+        "id", "first_name", "last_modified_date", "user_id", "phone_numbers", "url_path"
+    };
+
+
+  //**************************************************************************
+  //** camelCaseToUnderScore
+  //**************************************************************************
+    @Benchmark
+    public void camelCaseToUnderScore(Blackhole bh){
+        for (String fieldName : fieldNames){
+            bh.consume(Utils.camelCaseToUnderScore(fieldName));
+        }
+    }
+
+
+  //**************************************************************************
+  //** underscoreToCamelCase
+  //**************************************************************************
+    @Benchmark
+    public void underscoreToCamelCase(Blackhole bh){
+        for (String columnName : columnNames){
+            bh.consume(Utils.underscoreToCamelCase(columnName));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package javaxt.orm;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import javax.tools.*;
 import java.nio.charset.Charset;
 
@@ -15,15 +16,20 @@ import static javaxt.utils.Console.console;
  *   Used to compile ORM models into Java classes. The classes are ephemeral
  *   meaning they are not saved anywhere on disk (no class files or jar files).
  *   Instead the classes are stored in memory and are tied to the lifecycle of
- *   the JVM.
+ *   the JVM. Optionally, the compiled classes can be cached in a directory so
+ *   that subsequent runs can skip the compilation step.
  *
  ******************************************************************************/
 
 public class Compiler {
 
     private Class[] classes;
-    private HashMap<String, SimpleJavaFileObject> outputFiles;
+    private HashMap<Model, String> sources;
+    private HashMap<String, ClassFile> outputFiles;
+    private HashMap<String, ArrayList<ClassFile>> packages;
     private URLClassLoader urlClassLoader;
+    private JavaCompiler javaCompiler;
+    private FileManager fileManager;
     private DiagnosticListener<JavaFileObject> listener = null;
     private Locale locale = null;
     private Charset charset = Charset.defaultCharset();
@@ -32,7 +38,41 @@ public class Compiler {
   //**************************************************************************
   //** Constructor
   //**************************************************************************
+  /** Used to compile the given models into Java classes. All the models are
+   *  compiled together in a single compilation task.
+   */
     public Compiler(Model[] models) throws Exception {
+        this(models, true);
+    }
+
+
+  //**************************************************************************
+  //** Constructor
+  //**************************************************************************
+  /** Used to compile the given models into Java classes.
+   *  @param batch If true, all the models are compiled together in a single
+   *  compilation task so that models that reference each other are resolved
+   *  in one pass. Otherwise, the models are compiled one at a time.
+   */
+    public Compiler(Model[] models, boolean batch) throws Exception {
+        this(models, batch, null);
+    }
+
+
+  //**************************************************************************
+  //** Constructor
+  //**************************************************************************
+  /** Used to compile the given models into Java classes.
+   *  @param batch If true, all the models are compiled together in a single
+   *  compilation task so that models that reference each other are resolved
+   *  in one pass. Otherwise, the models are compiled one at a time.
+   *  @param cacheDir Optional directory used to cache compiled classes. The
+   *  classes are keyed by a hash of the Java code generated for the model and
+   *  all the models it depends on, directly or indirectly, along with the
+   *  Java version. Models found in the cache are loaded without invoking the
+   *  compiler.
+   */
+    public Compiler(Model[] models, boolean batch, File cacheDir) throws Exception {
 
         if (models==null || models.length==0){
             classes = new Class[0];
@@ -40,63 +80,83 @@ public class Compiler {
         else{
 
             outputFiles = new HashMap<>();
+            packages = new HashMap<>();
             urlClassLoader = getClassLoader();
 
 
+          //Generate Java code for all the models in parallel
+            sources = new HashMap<>();
+            String[] javaCode = Utils.generate(models, Model::getJavaCode, ForkJoinPool.commonPool());
+            for (int i=0; i<models.length; i++){
+                sources.put(models[i], javaCode[i]);
+            }
+
 
-          //Convert models into an ArrayList
-            ArrayList<Model> arr = new ArrayList<>();
-            for (Model model : models){
-                arr.add(model);
+          //Load cached classes
+            HashMap<Model, File> cacheFiles = new HashMap<>();
+            HashSet<Model> pendingModels = new HashSet<>();
+            if (cacheDir==null){
+                pendingModels.addAll(Arrays.asList(models));
+            }
+            else{
+                HashMap<Model, String> hashes = getHashes(new DependencyGraph(models));
+                for (Model model : models){
+                    String className = getClassName(model);
+                    File file = new File(cacheDir, className + "." + hashes.get(model) + ".bin");
+                    cacheFiles.put(model, file);
+                    if (!load(file)) pendingModels.add(model);
+                }
             }
 
 
-          //Compile classes
-            ArrayList<Class> classes = new ArrayList<>();
-            int numErrors = 0;
-            while (classes.size()<models.length){
+          //Compile classes. The compiler and file manager are created once
+          //and reused for every compilation task.
+            if (!pendingModels.isEmpty()){
                 try{
-                    Model model = arr.get(0);
-                    classes.add(compile(model));
-                    arr.remove(0);
+                    if (batch){
+                        ArrayList<Model> arr = new ArrayList<>();
+                        for (Model model : models){
+                            if (pendingModels.contains(model)) arr.add(model);
+                        }
+                        compile(arr.toArray(new Model[arr.size()]));
+                    }
+                    else{
+
+                      //Compile models in dependency order so that a model is always
+                      //compiled after the models it references. Models that reference
+                      //each other are compiled together.
+                        for (Model[] component : new DependencyGraph(models).getComponents()){
+                            ArrayList<Model> arr = new ArrayList<>();
+                            for (Model model : component){
+                                if (pendingModels.contains(model)) arr.add(model);
+                            }
+                            if (!arr.isEmpty()) compile(arr.toArray(new Model[arr.size()]));
+                        }
+                    }
                 }
-                catch(Exception e){
-                    numErrors++;
-
-                  //The following logic assumes that the compile error is due
-                  //to an ordering issue where one class depends on another
-                  //but the dependency hasn't been compiled yet. So we'll
-                  //shuffle the list of models and try again.
-
-                    if (arr.size()==1) throw e;
-                    String firstClass = getClassName(arr.get(0));
-                    while (true){
-                        Collections.shuffle(arr);
-                        String className = getClassName(arr.get(0));
-                        if (!className.equals(firstClass)) break;
+                finally{
+                    if (fileManager!=null){
+                        fileManager.close();
+                        fileManager = null;
+                        javaCompiler = null;
                     }
                 }
+            }
 
 
-              //Safety switch
-                if (numErrors>(models.length*models.length)){
-                    throw new Exception("Failed to compile " + getClassName(arr.get(0)));
+          //Update cache
+            if (cacheDir!=null){
+                for (Model model : pendingModels){
+                    save(getClassName(model), cacheFiles.get(model));
                 }
             }
 
 
-          //Convert the class list into an array. Sorts the classes to match
-          //the order of the input models.
-            this.classes = new Class[classes.size()];
+          //Load classes. Sorts the classes to match the order of the input
+          //models.
+            classes = new Class[models.length];
             for (int i=0; i<models.length; i++){
-                String className = getClassName(models[i]);
-                for (Class c : classes){
-                    String name = c.getPackageName() + "." + c.getSimpleName();
-                    if (name.equals(className)){
-                        this.classes[i] = c;
-                        break;
-                    }
-                }
+                classes[i] = urlClassLoader.loadClass(getClassName(models[i]));
             }
         }
     }
@@ -116,112 +176,260 @@ public class Compiler {
   //**************************************************************************
   //** compile
   //**************************************************************************
-  /** Used to compile a model and return a class
+  /** Used to compile one or more models in a single compilation task. Classes
+   *  compiled by previous tasks are made available on the classpath. Throws
+   *  an exception if any of the models fail to compile.
    */
-    private Class compile(Model model) throws Exception {
+    private void compile(Model[] models) throws Exception {
 
-        JavaCompiler c = ToolProvider.getSystemJavaCompiler();
-        String className = getClassName(model);
+        if (fileManager==null){
+            javaCompiler = ToolProvider.getSystemJavaCompiler();
+            fileManager = new FileManager(javaCompiler.getStandardFileManager(listener, locale, charset));
+        }
 
 
-      //Create input file object
-        SimpleJavaFileObject src = new SimpleJavaFileObject(
-        URI.create("string:///" + model.getName() + ".java"),
-        JavaFileObject.Kind.SOURCE) {
-            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
-                return model.getJavaCode();
-            }
-        };
+      //Create input file objects
+        ArrayList<SimpleJavaFileObject> src = new ArrayList<>();
+        for (Model model : models){
+            src.add(getSourceFile(model));
+        }
 
 
+      //Compile classes
+        JavaCompiler.CompilationTask task = javaCompiler.getTask(
+            null,
+            fileManager,
+            listener,
+            Collections.emptySet(),
+            Collections.emptySet(),
+            src
+        );
 
-      //Create output file object
-        SimpleJavaFileObject cls = new SimpleJavaFileObject(
-        URI.create("runtime:///" + model.getName() + ".class"),
-        JavaFileObject.Kind.CLASS) {
-            private ByteArrayOutputStream out = new ByteArrayOutputStream();
-            public OutputStream openOutputStream() throws IOException {
-                //console.log("openOutputStream");
-                return out;
+        boolean compiled = task.call();
+        ArrayList<ClassFile> classFiles = fileManager.getClassFiles();
+        if (!compiled){
+            String className = getClassName(models[0]);
+            for (int i=1; i<models.length; i++){
+                className += ", " + getClassName(models[i]);
             }
-            public InputStream openInputStream() throws IOException {
-                //console.log("openInputStream");
-                return new ByteArrayInputStream(out.toByteArray());
-            }
-        };
+            throw new Exception("Failed to compile " + className);
+        }
+
+
+      //Make the compiled classes available to subsequent tasks
+        for (ClassFile cls : classFiles){
+            addClass(cls);
+        }
+    }
+
+
+  //**************************************************************************
+  //** addClass
+  //**************************************************************************
+  /** Used to add a compiled class to the class loader and to the package
+   *  index used by the file manager.
+   */
+    private void addClass(ClassFile cls){
+        String className = cls.getClassName();
         outputFiles.put(className, cls);
 
+        int idx = className.lastIndexOf(".");
+        String packageName = idx<0 ? "" : className.substring(0, idx);
+        ArrayList<ClassFile> arr = packages.get(packageName);
+        if (arr==null){
+            arr = new ArrayList<>();
+            packages.put(packageName, arr);
+        }
+        arr.removeIf(f -> f.getClassName().equals(className));
+        arr.add(cls);
+    }
 
 
-      //Create in-memory file manager
-        StandardJavaFileManager fm = c.getStandardFileManager(listener, locale, charset);
-        JavaFileManager fileManager = new ForwardingJavaFileManager(fm) {
-            public JavaFileObject getJavaFileForOutput(
-                JavaFileManager.Location location, String className,
-                JavaFileObject.Kind kind, FileObject sibling) throws IOException {
-                return outputFiles.get(className);
+  //**************************************************************************
+  //** load
+  //**************************************************************************
+  /** Used to load compiled classes from a cache file. Returns true if the
+   *  classes were loaded.
+   */
+    private boolean load(File file){
+        if (!file.exists()) return false;
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(file)))){
+
+            ArrayList<ClassFile> classFiles = new ArrayList<>();
+            int numClasses = in.readInt();
+            for (int i=0; i<numClasses; i++){
+                String className = in.readUTF();
+                byte[] b = new byte[in.readInt()];
+                in.readFully(b);
+
+                ClassFile cls = new ClassFile(className);
+                try (OutputStream out = cls.openOutputStream()){
+                    out.write(b);
+                }
+                classFiles.add(cls);
             }
 
+            for (ClassFile cls : classFiles){
+                addClass(cls);
+            }
+            return true;
+        }
+        catch(Exception e){
+            return false;
+        }
+    }
 
-            public Iterable list(JavaFileManager.Location location,
-                String packageName, Set kinds, boolean recurse) throws IOException {
 
-                if (location==StandardLocation.CLASS_PATH){
-                    ArrayList<SimpleJavaFileObject> arr = new ArrayList<>();
-                    Iterator<String> it = outputFiles.keySet().iterator();
-                    while (it.hasNext()){
-                        String name = it.next();
-                        if (name.startsWith(packageName + ".")){
-                            if (!name.equals(className)){ //don't include the current file since it hasn't been compiled yet
-                                arr.add(outputFiles.get(name));
-                            }
-                        }
+  //**************************************************************************
+  //** save
+  //**************************************************************************
+  /** Used to save compiled classes for a model to a cache file. The cache
+   *  file includes nested classes. Older versions of the cache file for the
+   *  model are deleted.
+   */
+    private void save(String className, File file){
+        try{
+
+          //Delete older versions of the cache file
+            File dir = file.getParentFile();
+            dir.mkdirs();
+            File[] files = dir.listFiles();
+            if (files!=null){
+                for (File f : files){
+                    String name = f.getName();
+                    if (name.startsWith(className + ".") && name.endsWith(".bin") &&
+                        name.indexOf(".", className.length()+1)==name.length()-4){
+                        f.delete();
                     }
-                    if (!arr.isEmpty()) return arr;
                 }
+            }
 
-                return super.list(location, packageName, kinds, recurse);
+
+          //Find classes associated with the model
+            ArrayList<String> classNames = new ArrayList<>();
+            for (String name : outputFiles.keySet()){
+                if (name.equals(className) || name.startsWith(className + "$")){
+                    classNames.add(name);
+                }
             }
 
 
+          //Write classes to a temp file and rename
+            File tmp = new File(dir, file.getName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))){
+                out.writeInt(classNames.size());
+                for (String name : classNames){
+                    byte[] b = getBytes(outputFiles.get(name));
+                    out.writeUTF(name);
+                    out.writeInt(b.length);
+                    out.write(b);
+                }
+            }
+            if (!tmp.renameTo(file)) tmp.delete();
+        }
+        catch(Exception e){
+            e.printStackTrace();
+        }
+    }
 
-            public String inferBinaryName(JavaFileManager.Location location, JavaFileObject file) {
 
-                if (location==StandardLocation.CLASS_PATH){
-                    Iterator<String> it = outputFiles.keySet().iterator();
-                    while (it.hasNext()){
-                        String name = it.next();
-                        SimpleJavaFileObject f = outputFiles.get(name);
-                        if (file==f) return name;
-                    }
+  //**************************************************************************
+  //** getHashes
+  //**************************************************************************
+  /** Returns a SHA-256 hash for each model. The hash is used to identify
+   *  cache files. Models that reference each other share a hash, computed
+   *  from the Java code generated for the models and the hashes of the
+   *  models they depend on, along with the Java version. As a result, the
+   *  hash changes whenever any model it depends on changes, directly or
+   *  indirectly.
+   */
+    private HashMap<Model, String> getHashes(DependencyGraph graph) throws Exception {
+        HashMap<Model, String> hashes = new HashMap<>();
+
+      //Components are sorted so that dependencies are hashed first
+        for (Model[] component : graph.getComponents()){
+
+          //Sort models by class name so the hash does not depend on the
+          //order of the input models
+            Model[] arr = component.clone();
+            Arrays.sort(arr, (a, b) -> getClassName(a).compareTo(getClassName(b)));
+
+
+          //Get hashes of the models this component depends on. Models in
+          //the same component have not been hashed yet and are skipped.
+            TreeSet<String> dependencies = new TreeSet<>();
+            for (Model model : arr){
+                for (Model dependency : graph.getDependencies(model)){
+                    String hash = hashes.get(dependency);
+                    if (hash!=null) dependencies.add(hash);
                 }
+            }
+
 
-                return super.inferBinaryName(location, file);
+          //Compute hash
+            java.security.MessageDigest md = java.security.MessageDigest.getInstance("SHA-256");
+            md.update(System.getProperty("java.version").getBytes("UTF-8"));
+            for (Model model : arr){
+                md.update((byte) 0);
+                md.update(sources.get(model).getBytes("UTF-8"));
+            }
+            for (String hash : dependencies){
+                md.update((byte) 0);
+                md.update(hash.getBytes("UTF-8"));
             }
-        };
 
+            StringBuilder str = new StringBuilder();
+            for (byte b : md.digest()){
+                str.append(String.format("%02x", b));
+            }
+            for (Model model : arr){
+                hashes.put(model, str.toString());
+            }
+        }
+        return hashes;
+    }
 
 
+  //**************************************************************************
+  //** getBytes
+  //**************************************************************************
+  /** Returns the contents of an in-memory class file
+   */
+    private byte[] getBytes(ClassFile f) throws IOException {
+        try (InputStream is = f.openInputStream()) {
 
-      //Compile class
-        JavaCompiler.CompilationTask task = c.getTask(
-            null,
-            fileManager,
-            listener,
-            Collections.emptySet(),
-            Collections.emptySet(),
-            Collections.singleton(src)
-        );
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
 
-        if (task.call()) {
-            return urlClassLoader.loadClass(className);
-        }
-        else{
-            throw new Exception("Failed to compile " + className);
+            int x;
+            byte[] buffer = new byte[256];
+            while ((x = is.read(buffer, 0, buffer.length)) != -1) {
+                out.write(buffer, 0, x);
+            }
+
+            out.flush();
+            return out.toByteArray();
         }
     }
 
 
+  //**************************************************************************
+  //** getSourceFile
+  //**************************************************************************
+  /** Returns an input file object with the Java source code for a given model
+   */
+    private SimpleJavaFileObject getSourceFile(Model model){
+        return new SimpleJavaFileObject(
+        URI.create("string:///" + model.getName() + ".java"),
+        JavaFileObject.Kind.SOURCE) {
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return sources.get(model);
+            }
+        };
+    }
+
+
   //**************************************************************************
   //** getClassLoader
   //**************************************************************************
@@ -232,23 +440,11 @@ public class Compiler {
             protected Class<?> findClass(final String name) throws ClassNotFoundException {
 
 
-                SimpleJavaFileObject f = outputFiles.get(name);
+                ClassFile f = outputFiles.get(name);
                 if (f!=null){
-                    try (InputStream is = f.openInputStream()) {
-
-
-                        ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-                        int x;
-                        byte[] buffer = new byte[256];
-                        while ((x = is.read(buffer, 0, buffer.length)) != -1) {
-                            out.write(buffer, 0, x);
-                        }
-
-                        out.flush();
-                        byte[] classBytes = out.toByteArray();
+                    try {
+                        byte[] classBytes = getBytes(f);
                         return defineClass(name, classBytes, 0, classBytes.length);
-
                     }
                     catch(Exception e){
                         e.printStackTrace();
@@ -269,4 +465,90 @@ public class Compiler {
     }
 
 
+  //**************************************************************************
+  //** ClassFile
+  //**************************************************************************
+  /** In-memory output file object used to store a compiled class
+   */
+    private class ClassFile extends SimpleJavaFileObject {
+        private String className;
+        private ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        public ClassFile(String className){
+            super(URI.create("runtime:///" + className + ".class"), JavaFileObject.Kind.CLASS);
+            this.className = className;
+        }
+
+        public String getClassName(){
+            return className;
+        }
+
+        public OutputStream openOutputStream() throws IOException {
+            //console.log("openOutputStream");
+            out.reset();
+            return out;
+        }
+
+        public InputStream openInputStream() throws IOException {
+            //console.log("openInputStream");
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+    }
+
+
+  //**************************************************************************
+  //** FileManager
+  //**************************************************************************
+  /** In-memory file manager used to compile classes. Compiled classes are
+   *  stored in memory and classes compiled by previous tasks are listed on
+   *  the classpath using the package index.
+   */
+    private class FileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private ArrayList<ClassFile> classFiles = new ArrayList<>();
+
+        public FileManager(StandardJavaFileManager fm){
+            super(fm);
+        }
+
+
+      /** Returns class files created since the last call to this method
+       */
+        public ArrayList<ClassFile> getClassFiles(){
+            ArrayList<ClassFile> arr = classFiles;
+            classFiles = new ArrayList<>();
+            return arr;
+        }
+
+
+        public JavaFileObject getJavaFileForOutput(
+            JavaFileManager.Location location, String className,
+            JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+            ClassFile cls = new ClassFile(className);
+            classFiles.add(cls);
+            return cls;
+        }
+
+
+        public Iterable<JavaFileObject> list(JavaFileManager.Location location,
+            String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+
+            if (location==StandardLocation.CLASS_PATH && kinds.contains(JavaFileObject.Kind.CLASS)){
+                ArrayList<ClassFile> arr = packages.get(packageName);
+                if (arr!=null) return new ArrayList<>(arr);
+            }
+
+            return super.list(location, packageName, kinds, recurse);
+        }
+
+
+        public String inferBinaryName(JavaFileManager.Location location, JavaFileObject file) {
+            if (file instanceof ClassFile){
+                return ((ClassFile) file).getClassName();
+            }
+            return super.inferBinaryName(location, file);
+        }
+    }
+
+
 }
\ No newline at end of file
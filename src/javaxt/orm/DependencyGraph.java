@@ -0,0 +1,167 @@
+package javaxt.orm;
+import java.util.*;
+
+//******************************************************************************
+//**  DependencyGraph Class
+//******************************************************************************
+/**
+ *   Used to order models by their dependencies. A model depends on another
+ *   model if it has a model field or a hasMany array referencing the other
+ *   model. Models are sorted so that a model always appears after the models
+ *   it depends on. Models that reference each other, directly or indirectly,
+ *   form a strongly connected component and are grouped together.
+ *
+ ******************************************************************************/
+
+public class DependencyGraph {
+
+    private Model[] models;
+    private ArrayList<Model[]> components;
+    private HashMap<Model, ArrayList<Model>> dependencies;
+
+  //Used by the strongly connected component search
+    private int index;
+    private HashMap<Model, Integer> indexes;
+    private HashMap<Model, Integer> lowLinks;
+    private ArrayDeque<Model> stack;
+    private HashSet<Model> onStack;
+
+
+  //**************************************************************************
+  //** Constructor
+  //**************************************************************************
+  /** Creates a new instance of this class.
+   *  @param models Models used to generate the graph. References to models
+   *  that are not in this array are ignored.
+   */
+    public DependencyGraph(Model[] models){
+
+
+      //Create a lookup of models by name
+        HashMap<String, Model> lookup = new HashMap<>();
+        for (Model model : models){
+            lookup.put(model.getName(), model);
+        }
+
+
+      //Find dependencies for each model
+        dependencies = new HashMap<>();
+        for (Model model : models){
+            ArrayList<Model> arr = new ArrayList<>();
+            for (Field field : model.getFields()){
+                Model dependency = lookup.get(field.getModelName());
+                if (dependency!=null && dependency!=model && !arr.contains(dependency)){
+                    arr.add(dependency);
+                }
+            }
+            dependencies.put(model, arr);
+        }
+
+
+      //Find strongly connected components using Tarjan's algorithm. The
+      //components are found in reverse topological order which means that
+      //dependencies are found before the models that depend on them.
+        components = new ArrayList<>();
+        index = 0;
+        indexes = new HashMap<>();
+        lowLinks = new HashMap<>();
+        stack = new ArrayDeque<>();
+        onStack = new HashSet<>();
+        for (Model model : models){
+            if (!indexes.containsKey(model)) connect(model);
+        }
+        indexes = lowLinks = null;
+        stack = null;
+        onStack = null;
+
+
+      //Sort models within each component to match the order of the input
+      //models and generate a flat list of sorted models
+        HashMap<Model, Integer> order = new HashMap<>();
+        for (int i=0; i<models.length; i++){
+            order.put(models[i], i);
+        }
+        ArrayList<Model> arr = new ArrayList<>();
+        for (Model[] component : components){
+            Arrays.sort(component, (a, b) -> order.get(a)-order.get(b));
+            for (Model model : component){
+                arr.add(model);
+            }
+        }
+        this.models = arr.toArray(new Model[arr.size()]);
+    }
+
+
+  //**************************************************************************
+  //** getModels
+  //**************************************************************************
+  /** Returns all the models in the graph, sorted so that a model appears after
+   *  the models it depends on. The order is deterministic for a given input.
+   */
+    public Model[] getModels(){
+        return models;
+    }
+
+
+  //**************************************************************************
+  //** getComponents
+  //**************************************************************************
+  /** Returns groups of models, sorted so that a group appears after the
+   *  groups it depends on. Each group contains either a single model or
+   *  models that reference each other and must be compiled together.
+   */
+    public List<Model[]> getComponents(){
+        return Collections.unmodifiableList(components);
+    }
+
+
+  //**************************************************************************
+  //** getDependencies
+  //**************************************************************************
+  /** Returns models referenced by a given model, excluding the model itself.
+   */
+    public Model[] getDependencies(Model model){
+        ArrayList<Model> arr = dependencies.get(model);
+        if (arr==null) return new Model[0];
+        return arr.toArray(new Model[arr.size()]);
+    }
+
+
+  //**************************************************************************
+  //** connect
+  //**************************************************************************
+  /** Used to visit a model and its dependencies and add strongly connected
+   *  components to the list of components.
+   */
+    private void connect(Model model){
+        indexes.put(model, index);
+        lowLinks.put(model, index);
+        index++;
+        stack.push(model);
+        onStack.add(model);
+
+        for (Model dependency : dependencies.get(model)){
+            if (!indexes.containsKey(dependency)){
+                connect(dependency);
+                lowLinks.put(model, Math.min(lowLinks.get(model), lowLinks.get(dependency)));
+            }
+            else if (onStack.contains(dependency)){
+                lowLinks.put(model, Math.min(lowLinks.get(model), indexes.get(dependency)));
+            }
+        }
+
+
+      //If the model is a root node, pop the stack and create a component
+        if (lowLinks.get(model).equals(indexes.get(model))){
+            ArrayList<Model> component = new ArrayList<>();
+            Model m;
+            do {
+                m = stack.pop();
+                onStack.remove(m);
+                component.add(m);
+            }
+            while (m!=model);
+            components.add(component.toArray(new Model[component.size()]));
+        }
+    }
+}
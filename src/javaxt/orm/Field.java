@@ -19,7 +19,9 @@ public class Field {
     private Object defaultValue = null;
     private Integer length;
     private boolean isModel = false;
+    private boolean lazy = false;
     private ForeignKey foreignKey;
+    private Model model;
 
 
   //**************************************************************************
@@ -29,6 +31,7 @@ public class Field {
    */
     protected Field(String name, String type, Model model){
         this.name = name;
+        this.model = model;
         this.columnName = Utils.camelCaseToUnderScore(name);
 
       //Set columnType and tweak type as needed
@@ -106,7 +109,7 @@ public class Field {
               //very rare (most models don't have a model field with the same
               //type).
                 if (!type.equals(model.getName())){
-                    foreignKey = new ForeignKey(columnName, type);
+                    foreignKey = new ForeignKey(columnName, type, model);
                 }
 
             }
@@ -152,6 +155,30 @@ public class Field {
     }
 
 
+  /** Returns the name of the model referenced by this field if the field is
+   *  a model or an array of models (hasMany). Returns null otherwise.
+   */
+    public String getModelName(){
+        if (isModel) return type;
+        if (isArray()) return type.substring(10, type.length()-1);
+        return null;
+    }
+
+
+
+  /** Returns true if the field is a model that should be loaded on demand.
+   *  Lazy fields store the foreign key ID and only query the database when
+   *  the model is requested. Default is false.
+   */
+    public boolean isLazy(){
+        return lazy && isModel;
+    }
+
+    public void isLazy(boolean lazy){
+        this.lazy = lazy;
+        model.invalidate();
+    }
+
 
   /** Returns true if a value is required for this field. Default is false (nullable).
    */
@@ -161,6 +188,7 @@ public class Field {
 
     public void isRequired(boolean required){
         this.required = required;
+        model.invalidate();
     }
 
 
@@ -172,6 +200,7 @@ public class Field {
 
     public void isUnique(boolean unique){
         this.unique = unique;
+        model.invalidate();
     }
 
   /** Returns true if the field has a default value.
@@ -190,6 +219,7 @@ public class Field {
 
     public void setDefaultValue(Object defaultValue){
         this.defaultValue = defaultValue;
+        model.invalidate();
     }
 
 
@@ -206,6 +236,7 @@ public class Field {
                 this.length = length;
             }
         }
+        model.invalidate();
     }
 
 
@@ -217,5 +248,6 @@ public class Field {
             if (srid!=null) columnType+=","+srid;
             columnType+=")";
         }
+        model.invalidate();
     }
 }
\ No newline at end of file
@@ -5,10 +5,12 @@ public class ForeignKey {
     private String foreignKey;
     private String foreignTable;
     private String onDelete = "NO ACTION"; //CASCADE
+    private Model model;
 
-    protected ForeignKey(String columnName, String type){
+    protected ForeignKey(String columnName, String type, Model model){
         foreignKey = columnName;
         foreignTable = Utils.camelCaseToUnderScore(type);
+        this.model = model;
     }
 
     public String getColumnName(){
@@ -25,5 +27,6 @@ public class ForeignKey {
 
     protected void onDelete(String action){
         onDelete = action.toUpperCase();
+        model.invalidate();
     }
 }
\ No newline at end of file
@@ -67,7 +67,9 @@ public class Main {
         Model[] models = new Parser(inputFile.getText()).getModels();
 
 
-      //Create files
-        Writer.write(models, outputDirectory);
+      //Create files. In incremental mode, only files that have changed are
+      //written to the output directory.
+        boolean incremental = args.containsKey("-incremental");
+        Writer.write(models, outputDirectory, java.util.concurrent.ForkJoinPool.commonPool(), incremental);
     }
 }
\ No newline at end of file
@@ -17,13 +17,23 @@ public class Model {
     private TreeSet<String> implementations;
     private ArrayList<Field> fields;
     private ArrayList<JSONObject> indexes;
-    private static final String template = getTemplate();
+    private static final Template template = new Template(getTemplate());
     private String tableName;
     private String escapedTableName;
     private String packageName;
     private String schemaName;
     private String escapedSchemaName;
     private HashMap<String, String> options;
+    private Integer cacheSize; //max number of models to cache by ID
+    private Long cacheTTL; //max age of cached models, in seconds
+    private String packageSchema; //schemas of all the models in the package
+
+  //Cached output. Cleared when a field is updated.
+    private volatile String javaCode;
+    private volatile String tableSQL;
+    private volatile String diamondTableSQL;
+    private volatile String foreignKeySQL;
+    private volatile String indexSQL;
 
 
   //**************************************************************************
@@ -61,6 +71,20 @@ public class Model {
         }
 
 
+      //Check whether model fields should be loaded on demand by default
+        boolean lazy = Boolean.TRUE.equals(modelInfo.get("lazy").toBoolean());
+
+
+      //Check whether models should be cached by ID
+        JSONObject cache = modelInfo.get("cache").toJSONObject();
+        if (cache!=null){
+            cacheSize = cache.get("maxSize").toInteger();
+            if (cacheSize==null) cacheSize = 1000;
+            cacheTTL = cache.get("ttl").toLong();
+            if (cacheTTL==null) cacheTTL = 300L;
+        }
+
+
       //Parse fields
         JSONArray arr = modelInfo.get("fields").toJSONArray();
         if (arr!=null){
@@ -73,6 +97,7 @@ public class Model {
 
               //Create field and update the fields array
                 Field field = new Field(name, type, this);
+                if (lazy) field.isLazy(true);
                 addConstraints(field, f.toJSONObject());
                 Object defaultValue = f.get("default").toObject();
                 field.setDefaultValue(defaultValue);
@@ -168,12 +193,14 @@ public class Model {
         Integer length = constraint.get("length").toInteger();
         if (length==null) length = constraint.get("size").toInteger();
         Integer srid = constraint.get("srid").toInteger();
+        Boolean isLazy = constraint.get("lazy").toBoolean();
 
 
         if (isRequired!=null) field.isRequired(isRequired);
         if (isUnique!=null) field.isUnique(isUnique);
         if (length!=null) field.setLength(length);
         if (srid!=null) field.setSRID(srid);
+        if (isLazy!=null) field.isLazy(isLazy);
 
 
         ForeignKey foreignKey = field.getForeignKey();
@@ -248,13 +275,32 @@ public class Model {
   //**************************************************************************
   //** getJavaCode
   //**************************************************************************
-  /** Used to generate Java code for the model.
+  /** Used to generate Java code for the model. The code is generated once
+   *  and cached until a field in the model is updated.
    */
     public String getJavaCode(){
-        String str = template.replace("${modelName}", name);
-        str = str.replace("${package}", packageName);
-        str = str.replace("${tableName}", schemaName==null ? tableName : (schemaName + "." + tableName));
-        str = str.replace("${implements}", implementations.isEmpty() ? "" : "\r\n    implements " +
+        String str = javaCode;
+        if (str==null){
+            str = getJavaCode(template);
+            javaCode = str;
+        }
+        return str;
+    }
+
+
+  //**************************************************************************
+  //** getJavaCode
+  //**************************************************************************
+  /** Used to generate Java code for the model using a custom template. The
+   *  template should use the same placeholders as the default template
+   *  (Class.txt) found in this package.
+   */
+    public String getJavaCode(Template template){
+        HashMap<String, String> values = new HashMap<>();
+        values.put("modelName", name);
+        values.put("package", packageName);
+        values.put("tableName", schemaName==null ? tableName : (schemaName + "." + tableName));
+        values.put("implements", implementations.isEmpty() ? "" : "\r\n    implements " +
         implementations.stream().map(Object::toString).collect(Collectors.joining(", ")) + " ");
 
 
@@ -263,11 +309,31 @@ public class Model {
         StringBuilder publicMembers = new StringBuilder();
         StringBuilder getModels = new StringBuilder();
         StringBuilder saveModels = new StringBuilder();
+        StringBuilder saveIDs = new StringBuilder();
+        StringBuilder saveLinks = new StringBuilder();
+        StringBuilder trackModels = new StringBuilder();
+        StringBuilder linkSQL = new StringBuilder();
+        StringBuilder saveChanges = new StringBuilder();
+        StringBuilder loadedColumns = new StringBuilder();
+        ArrayList<String> snapshotValues = new ArrayList<>();
+        ArrayList<String> insertColumns = new ArrayList<>();
+        ArrayList<String> insertValues = new ArrayList<>();
+        StringBuilder insertParams = new StringBuilder();
+        StringBuilder insertDefaults = new StringBuilder();
+        int numDefaults = 0;
+        StringBuilder insertModels = new StringBuilder();
         StringBuilder getValues = new StringBuilder();
         StringBuilder getJson = new StringBuilder();
         StringBuilder toJson = new StringBuilder();
+        StringBuilder writeJson = new StringBuilder();
+        StringBuilder readJson = new StringBuilder();
+        StringBuilder writeBinary = new StringBuilder();
+        StringBuilder readBinary = new StringBuilder();
         StringBuilder hasMany = new StringBuilder();
+        StringBuilder deferModels = new StringBuilder();
+        StringBuilder loadModels = new StringBuilder();
         StringBuilder initArrays = new StringBuilder();
+        StringBuilder copyFields = new StringBuilder();
         String getLastModified = "";
         TreeSet<String> includes = new TreeSet<>();
 
@@ -309,6 +375,8 @@ public class Model {
                 includes.add("java.util.ArrayList");
             }
             boolean password = fieldType.equals("Password");
+            boolean lazy = field.isLazy();
+            String idName = fieldName + "ID";
             if (password) includes.add("javaxt.encryption.BCrypt");
             if (fieldType.equals("Date")) includes.add("javaxt.utils.Date");
             if (fieldType.equals("BigDecimal")) includes.add("java.math.BigDecimal");
@@ -317,6 +385,10 @@ public class Model {
                 if (jts==null) jts = "org.locationtech.jts"; //vs "com.vividsolutions.jts";
                 includes.add(jts+".geom.Geometry");
                 includes.add(jts+".io.WKTReader");
+                if (useWKB()){
+                    includes.add(jts+".io.WKBReader");
+                    includes.add(jts+".io.WKBWriter");
+                }
             }
 
 
@@ -333,7 +405,7 @@ public class Model {
 
           //Append field to the fieldMap
             fieldMap.append("            java.util.Map.entry(\"");
-            fieldMap.append(fieldName);
+            fieldMap.append(lazy ? idName : fieldName);
             fieldMap.append("\", \"");
             fieldMap.append(columnName);
             fieldMap.append("\")");
@@ -350,6 +422,11 @@ public class Model {
                 privateFields.append(" ");
                 privateFields.append(fieldName);
                 privateFields.append(";\r\n");
+                if (lazy){
+                    privateFields.append("    private Long ");
+                    privateFields.append(idName);
+                    privateFields.append(";\r\n");
+                }
             }
             else{
                 privateFields.append("    private String ");
@@ -357,8 +434,48 @@ public class Model {
                 privateFields.append("; //bcrypt hash\r\n");
             }
 
+          //Append field to the copy method. Mutable values and models are copied.
+            if (field.isArray()){
+                copyFields.append("        if (" + fieldName + "==null) dst." + fieldName + " = null;\r\n");
+                copyFields.append("        else for (" + modelName + " obj : " + fieldName + ") dst." +
+                fieldName + ".add(obj==null ? null : obj.copy(copies));\r\n");
+            }
+            else{
+                String copy = fieldName + "==null ? null : ";
+                if (field.isModel()) copy += fieldName + ".copy(copies)";
+                else if (fieldType.endsWith("[]")) copy += fieldName + ".clone()";
+                else if (fieldType.equals("Date")) copy += "new Date(" + fieldName + ".getTime())";
+                else if (fieldType.equals("JSONObject")) copy += "new JSONObject(" + fieldName + ".toString())";
+                else if (fieldType.equals("Geometry")) copy += "(Geometry) " + fieldName + ".clone()";
+                else copy = fieldName;
+                copyFields.append("        dst." + fieldName + " = " + copy + ";\r\n");
+                if (lazy) copyFields.append("        dst." + idName + " = " + idName + ";\r\n");
+            }
+
+
           //Append public get method
-            if (!field.isArray()){
+            if (lazy){
+
+              //Load the model on first access
+                publicMembers.append("    public " + fieldType + " get" + methodName + "(){\r\n");
+                publicMembers.append("        if (" + fieldName + "==null && " + idName + "!=null){\r\n");
+                publicMembers.append("            try{\r\n");
+                publicMembers.append("                " + fieldName + " = new " + fieldType + "(" + idName + ");\r\n");
+                publicMembers.append("            }\r\n");
+                publicMembers.append("            catch(SQLException e){\r\n");
+                publicMembers.append("                throw new RuntimeException(e);\r\n");
+                publicMembers.append("            }\r\n");
+                publicMembers.append("        }\r\n");
+                publicMembers.append("        return " + fieldName + ";\r\n");
+                publicMembers.append("    }\r\n\r\n");
+
+
+              //Add method to get the ID without loading the model
+                publicMembers.append("    public Long get" + methodName + "ID(){\r\n");
+                publicMembers.append("        return " + fieldName + "==null ? " + idName + " : " + fieldName + ".getID();\r\n");
+                publicMembers.append("    }\r\n\r\n");
+            }
+            else if (!field.isArray()){
 
                 if (password){
                     publicMembers.append("    /** Returns a BCrypt encrypted password */\r\n");
@@ -426,7 +543,27 @@ public class Model {
 
           //Append public set method
             if (!field.isLastModifiedDate()){
-                if (!field.isArray()){
+                if (lazy){
+                    publicMembers.append("    public void set" + methodName + "(" + fieldType + " " + fieldName + "){\r\n");
+                    publicMembers.append("        this." + fieldName + " = " + fieldName + ";\r\n");
+                    publicMembers.append("        this." + idName + " = " + fieldName + "==null ? null : " + fieldName + ".getID();\r\n");
+                    publicMembers.append("        dirty.set(" + i + ");\r\n");
+                    publicMembers.append("    }\r\n\r\n");
+
+                    publicMembers.append("    public void set" + methodName + "ID(Long " + idName + "){\r\n");
+                    publicMembers.append("        if (" + fieldName + "!=null && !java.util.Objects.equals(" + fieldName + ".getID(), " + idName + ")) " + fieldName + " = null;\r\n");
+                    publicMembers.append("        this." + idName + " = " + idName + ";\r\n");
+                    publicMembers.append("        dirty.set(" + i + ");\r\n");
+                    publicMembers.append("    }\r\n\r\n");
+
+
+                  //Update the foreign key before saving (see save method)
+                    saveIDs.append("        if (" + fieldName + "!=null && !java.util.Objects.equals(" + idName + ", " + fieldName + ".getID())){\r\n");
+                    saveIDs.append("            " + idName + " = " + fieldName + ".getID();\r\n");
+                    saveIDs.append("            dirty.set(" + i + ");\r\n");
+                    saveIDs.append("        }\r\n");
+                }
+                else if (!field.isArray()){
                     publicMembers.append("    public void set");
                     publicMembers.append(methodName);
                     publicMembers.append("(");
@@ -458,6 +595,7 @@ public class Model {
                         publicMembers.append(fieldName);
                     }
                     publicMembers.append(";\r\n");
+                    publicMembers.append("        dirty.set(" + i + ");\r\n");
                     publicMembers.append("    }\r\n\r\n");
                 }
                 else{
@@ -472,6 +610,7 @@ public class Model {
                     publicMembers.append(fieldName);
                     publicMembers.append(".add(arr[i]);\r\n");
                     publicMembers.append("        }\r\n");
+                    publicMembers.append("        dirty.set(" + i + ");\r\n");
                     publicMembers.append("    }\r\n\r\n");
 
 
@@ -482,20 +621,62 @@ public class Model {
                     publicMembers.append(modelName + " " + paramName);
                     publicMembers.append("){\r\n");
                     publicMembers.append("        this." + fieldName + ".add(" + paramName + ");\r\n");
+                    publicMembers.append("        dirty.set(" + i + ");\r\n");
                     publicMembers.append("    }\r\n\r\n");
                 }
             }
 
 
+          //Update partial update (see saveChanges method) and bulk insert
+          //(see saveAll method). The last modified date is set by a trigger.
+            if (!field.isArray() && !field.isLastModifiedDate()){
+                String param = getParameter(field);
+
+              //Values that can be modified in place via a getter (e.g. json,
+              //arrays, dates, geometry) are also updated if they were loaded
+              //from the database and their hash has changed (see getSnapshot).
+                String hash = getHash(field, fieldName);
+                if (hash!=null){
+                    int k = snapshotValues.size();
+                    snapshotValues.add(hash);
+                    saveChanges.append("        if (dirty.get(" + i + ") || loaded.get(" + i + ") && snapshot[" + k + "]!=hashes[" + k + "]){\r\n");
+                }
+                else{
+                    saveChanges.append("        if (dirty.get(" + i + ")){\r\n");
+                }
+                saveChanges.append("            sql.append(\", " + columnName + "=" + param + "\");\r\n");
+                saveChanges.append("            params.add(" + getParameterValue(field, "this") + ");\r\n");
+                saveChanges.append("        }\r\n");
+
+              //Columns with a default value are set to DEFAULT when null
+                String value = getParameterValue(field, "obj");
+                insertColumns.add(columnName);
+                if (field.hasDefaultValue()){
+                    int k = numDefaults++;
+                    String isNull = "obj." + fieldName + "==null";
+                    if (lazy) isNull += " && obj." + idName + "==null";
+                    insertDefaults.append("            if (" + isNull + ") defaults.set(" + k + ");\r\n");
+                    insertValues.add("\" + (defaults.get(" + k + ") ? \"DEFAULT\" : \"" + param + "\") + \"");
+                    insertParams.append("                        if (!defaults.get(" + k + ")) stmt.setObject(n++, " + value + ");\r\n");
+                }
+                else{
+                    insertValues.add(param);
+                    insertParams.append("                        stmt.setObject(n++, " + value + ");\r\n");
+                }
+            }
+
+
           //Update database constructor
             if (!field.isArray()){
+                loadedColumns.append("            if (rs.columns.contains(\"" + columnName + "\")) loaded.set(" + i + ");\r\n");
                 if (!field.isModel()){
                     if (fieldType.equals("JSONObject")){
+                        getValues.append("            {String v = getValue(rs, \"");
+                        getValues.append(columnName);
+                        getValues.append("\").toString();\r\n");
                         getValues.append("            this.");
                         getValues.append(fieldName);
-                        getValues.append(" = new JSONObject(getValue(rs, \"");
-                        getValues.append(columnName);
-                        getValues.append("\").toString());\r\n");
+                        getValues.append(" = v==null ? null : new JSONObject(v);}\r\n");
                     }
                     else if (fieldType.equals("byte[]")){
                         getValues.append("            this.");
@@ -505,11 +686,15 @@ public class Model {
                         getValues.append("\").toByteArray();\r\n");
                     }
                     else if (fieldType.equals("Geometry")){
-                        getValues.append("            try{this.");
-                        getValues.append(fieldName);
-                        getValues.append(" = new WKTReader().read(getValue(rs, \"");
-                        getValues.append(columnName);
-                        getValues.append("\").toString());}catch(Exception e){}\r\n");
+                        if (useWKB()){ //Parse WKB but fall back to WKT if the value is a string
+                            getValues.append("            {Object v = getValue(rs, \"" + columnName + "\").toObject();\r\n");
+                            getValues.append("            this." + fieldName + " = v==null ? null : v instanceof byte[] ? ");
+                            getValues.append("new WKBReader().read((byte[]) v) : new WKTReader().read(v.toString());}\r\n");
+                        }
+                        else{
+                            getValues.append("            {String v = getValue(rs, \"" + columnName + "\").toString();\r\n");
+                            getValues.append("            this." + fieldName + " = v==null ? null : new WKTReader().read(v);}\r\n");
+                        }
                     }
                     else{
 
@@ -541,6 +726,10 @@ public class Model {
                         }
                     }
                 }
+                else if (lazy){
+                    getValues.append("            this." + idName + " = getValue(rs, \"" + columnName + "\").toLong();\r\n");
+                    getValues.append("            this." + fieldName + " = null;\r\n");
+                }
                 else{
                     String id = Utils.underscoreToCamelCase(fieldName) + "ID";
                     getValues.append("            Long ");
@@ -553,6 +742,28 @@ public class Model {
                     getModels.append("          //Set " + fieldName + "\r\n");
                     getModels.append("            if (" + id + "!=null) ");
                     getModels.append(fieldName + " = new " + fieldType + "(" + id + ");\r\n");
+
+
+                  //Use a placeholder with the ID when loading models in bulk
+                    deferModels.append("                if (" + id + "!=null){\r\n");
+                    deferModels.append("                    " + fieldName + " = new " + fieldType + "();\r\n");
+                    deferModels.append("                    " + fieldName + ".setID(" + id + ");\r\n");
+                    deferModels.append("                }\r\n");
+
+
+                  //Replace placeholders (see loadModels method)
+                    loadModels.append("\r\n\r\n");
+                    loadModels.append("      //Set " + fieldName + "\r\n");
+                    loadModels.append("        {\r\n");
+                    loadModels.append("            java.util.HashSet<Long> ids = new java.util.HashSet<>();\r\n");
+                    loadModels.append("            for (" + name + " obj : arr){\r\n");
+                    loadModels.append("                if (obj." + fieldName + "!=null) ids.add(obj." + fieldName + ".getID());\r\n");
+                    loadModels.append("            }\r\n");
+                    loadModels.append("            java.util.HashMap<Long, " + fieldType + "> models = " + fieldType + ".load(ids, conn, cache);\r\n");
+                    loadModels.append("            for (" + name + " obj : arr){\r\n");
+                    loadModels.append("                if (obj." + fieldName + "!=null) obj." + fieldName + " = models.get(obj." + fieldName + ".getID());\r\n");
+                    loadModels.append("            }\r\n");
+                    loadModels.append("        }\r\n");
                 }
             }
             else{
@@ -577,39 +788,111 @@ public class Model {
                 id = id.substring(0, 1).toLowerCase() + id.substring(1);
 
 
-              //Update get models (see database constructor)
+              //Update get models (see database constructor). Models are
+              //loaded with a single query using the link table.
+              //Generate SQL statements for the link table
+                String sqlName = Utils.camelCaseToUnderScore(fieldName).toUpperCase();
+                linkSQL.append("\r\n");
+                linkSQL.append("  //SQL statements used to link " + fieldName + " to this " + this.name + "\r\n");
+                linkSQL.append("    private static final String " + sqlName + "_SELECT = \"select " + rightColumn + " from " + tableName + " where " + leftColumn + "=?\";\r\n");
+                linkSQL.append("    private static final String " + sqlName + "_LOAD = \"select " + leftColumn + ", " + rightColumn + " from " + tableName + " where " + leftColumn + " = ANY(?)\";\r\n");
+                linkSQL.append("    private static final String " + sqlName + "_INSERT = \"insert into " + tableName + " (" + leftColumn + ", " + rightColumn + ") values (?,?)\";\r\n");
+                linkSQL.append("    private static final String " + sqlName + "_DELETE = \"delete from " + tableName + " where " + leftColumn + "=? and " + rightColumn + "=?\";\r\n");
+
+
                 hasMany.append("\r\n\r\n");
                 hasMany.append("              //Set " + fieldName + "\r\n");
-                hasMany.append("                for (javaxt.sql.Record record : conn.getRecords(\r\n");
-                hasMany.append("                    \"select " + rightColumn + " from " + tableName + " where " + leftColumn + "=\"+id)){\r\n");
-                hasMany.append("                    " + fieldName + ".add(new " + modelName + "(record.get(0).toLong()));\r\n");
+                hasMany.append("                try (java.sql.PreparedStatement stmt = c.prepareStatement(\r\n");
+                hasMany.append("                    " + modelName + ".SELECT + \" where id in (\" + " + sqlName + "_SELECT + \")\")){\r\n");
+                hasMany.append("                    stmt.setLong(1, id);\r\n");
+                hasMany.append("                    " + fieldName + ".addAll(" + modelName + ".load(stmt, conn, cache));\r\n");
                 hasMany.append("                }\r\n");
 
                 initArrays.append("        " + fieldName + " = new " + fieldType + "();\r\n");
 
 
-              //Update save models (see save method)
-                saveModels.append("\r\n");
-                saveModels.append("          //Save " + fieldName + "\r\n");
-                saveModels.append("            ArrayList<Long> " + idArray + " = new ArrayList<>();\r\n");
-                saveModels.append("            for (" + modelName + " obj : this." + fieldName + "){\r\n");
-                saveModels.append("                obj.save();\r\n");
-                saveModels.append("                " + idArray + ".add(obj.getID());\r\n");
-                saveModels.append("            }\r\n");
-
+              //Update bulk loader (see loadModels method)
+                loadModels.append("\r\n\r\n");
+                loadModels.append("      //Set " + fieldName + "\r\n");
+                loadModels.append("        {\r\n");
+                loadModels.append("            java.util.HashMap<Long, java.util.ArrayList<Long>> links = new java.util.HashMap<>();\r\n");
+                loadModels.append("            java.util.HashSet<Long> ids = new java.util.HashSet<>();\r\n");
+                loadModels.append("            try (java.sql.PreparedStatement stmt = c.prepareStatement(" + sqlName + "_LOAD)){\r\n");
+                loadModels.append("                stmt.setArray(1, idArray);\r\n");
+                loadModels.append("                try (java.sql.ResultSet rs = stmt.executeQuery()){\r\n");
+                loadModels.append("                    while (rs.next()){\r\n");
+                loadModels.append("                        Long id = rs.getLong(1);\r\n");
+                loadModels.append("                        Long " + id + " = rs.getLong(2);\r\n");
+                loadModels.append("                        java.util.ArrayList<Long> list = links.get(id);\r\n");
+                loadModels.append("                        if (list==null){\r\n");
+                loadModels.append("                            list = new java.util.ArrayList<>();\r\n");
+                loadModels.append("                            links.put(id, list);\r\n");
+                loadModels.append("                        }\r\n");
+                loadModels.append("                        list.add(" + id + ");\r\n");
+                loadModels.append("                        ids.add(" + id + ");\r\n");
+                loadModels.append("                    }\r\n");
+                loadModels.append("                }\r\n");
+                loadModels.append("            }\r\n");
+                loadModels.append("            java.util.HashMap<Long, " + modelName + "> models = " + modelName + ".load(ids, conn, cache);\r\n");
+                loadModels.append("            for (" + name + " obj : arr){\r\n");
+                loadModels.append("                obj." + fieldName + ".clear();\r\n");
+                loadModels.append("                java.util.ArrayList<Long> list = links.get(obj.id);\r\n");
+                loadModels.append("                if (list==null) continue;\r\n");
+                loadModels.append("                for (Long " + id + " : list){\r\n");
+                loadModels.append("                    " + modelName + " model = models.get(" + id + ");\r\n");
+                loadModels.append("                    if (model!=null) obj." + fieldName + ".add(model);\r\n");
+                loadModels.append("                }\r\n");
+                loadModels.append("            }\r\n");
+                loadModels.append("        }\r\n");
+
+
+              //Update save models (see save method). Models that haven't
+              //changed are skipped by their own save method.
+                trackModels.append("        for (" + modelName + " obj : " + fieldName + "){\r\n");
+                trackModels.append("            if (obj!=null) obj.track(tx);\r\n");
+                trackModels.append("        }\r\n");
 
                 saveModels.append("\r\n\r\n");
-                saveModels.append("          //Link " + fieldName + " to this " + this.name + "\r\n");
-                saveModels.append("            target = \"" + tableName + " where " + leftColumn + "=\" + this.id;\r\n");
-                saveModels.append("            conn.execute(\"delete from \" + target);\r\n");
-                saveModels.append("            try (javaxt.sql.Recordset rs = conn.getRecordset(\"select * from \" + target, false)){\r\n");
-                saveModels.append("                for (long " + id + " : " + idArray + "){\r\n");
-                saveModels.append("                    rs.addNew();\r\n");
-                saveModels.append("                    rs.setValue(\"" + leftColumn + "\", this.id);\r\n");
-                saveModels.append("                    rs.setValue(\"" + rightColumn + "\", " + id + ");\r\n");
-                saveModels.append("                    rs.update();\r\n");
-                saveModels.append("                }\r\n");
-                saveModels.append("            }\r\n");
+                saveModels.append("      //Save " + fieldName + "\r\n");
+                saveModels.append("        ArrayList<Long> " + idArray + " = new ArrayList<>();\r\n");
+                saveModels.append("        for (" + modelName + " obj : this." + fieldName + "){\r\n");
+                saveModels.append("            obj.save(conn);\r\n");
+                saveModels.append("            " + idArray + ".add(obj.getID());\r\n");
+                saveModels.append("        }\r\n");
+
+
+              //Update links if the list has changed
+                saveLinks.append("        if (dirty.get(" + i + ")){\r\n");
+                saveLinks.append("            saveLinks(conn, " + sqlName + "_SELECT, " + sqlName + "_INSERT, " + sqlName + "_DELETE, this.id, " + idArray + ");\r\n");
+                saveLinks.append("        }\r\n");
+
+
+              //Update bulk insert (see saveAll method)
+                insertModels.append("\r\n\r\n");
+                insertModels.append("      //Save " + fieldName + "\r\n");
+                insertModels.append("        {\r\n");
+                insertModels.append("            java.util.Set<" + modelName + "> children = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>());\r\n");
+                insertModels.append("            for (" + name + " obj : inserts){\r\n");
+                insertModels.append("                children.addAll(obj." + fieldName + ");\r\n");
+                insertModels.append("            }\r\n");
+                insertModels.append("            " + modelName + ".saveAll(children, batchSize, conn);\r\n");
+                insertModels.append("            try (java.sql.PreparedStatement stmt = c.prepareStatement(\r\n");
+                insertModels.append("                " + sqlName + "_INSERT)){\r\n");
+                insertModels.append("                int n = 0;\r\n");
+                insertModels.append("                for (" + name + " obj : inserts){\r\n");
+                insertModels.append("                    for (" + modelName + " child : obj." + fieldName + "){\r\n");
+                insertModels.append("                        stmt.setLong(1, obj.id);\r\n");
+                insertModels.append("                        stmt.setLong(2, child.getID());\r\n");
+                insertModels.append("                        stmt.addBatch();\r\n");
+                insertModels.append("                        if (++n==batchSize){\r\n");
+                insertModels.append("                            stmt.executeBatch();\r\n");
+                insertModels.append("                            n = 0;\r\n");
+                insertModels.append("                        }\r\n");
+                insertModels.append("                    }\r\n");
+                insertModels.append("                }\r\n");
+                insertModels.append("                if (n>0) stmt.executeBatch();\r\n");
+                insertModels.append("            }\r\n");
+                insertModels.append("        }\r\n");
             }
 
 
@@ -620,14 +903,13 @@ public class Model {
 
 
                         if (fieldType.equals("Geometry")){
-                            getJson.append("        try {\r\n");
-                            getJson.append("            this.");
-                            getJson.append(fieldName);
-                            getJson.append(" = new WKTReader().read(json.get(\"");
-                            getJson.append(columnName);
-                            getJson.append("\").toString());\r\n");
+                            getJson.append("        {String v = json.get(\"" + columnName + "\").toString();\r\n");
+                            getJson.append("        try{\r\n");
+                            getJson.append("            this." + fieldName + " = v==null ? null : new WKTReader().read(v);\r\n");
                             getJson.append("        }\r\n");
-                            getJson.append("        catch(Exception e) {}\r\n");
+                            getJson.append("        catch(Exception e){\r\n");
+                            getJson.append("            throw new IllegalArgumentException(\"Invalid " + fieldName + ": \" + e.getMessage(), e);\r\n");
+                            getJson.append("        }}\r\n");
                         }
                         else if (fieldType.equals("byte[]")){
                             getJson.append("        this.");
@@ -676,6 +958,21 @@ public class Model {
                         getJson.append("\").toString());\r\n");
                     }
                 }
+                else if (lazy){ //Model loaded on demand
+
+                    //if (json.has("account")){...
+                    getJson.append("        if (json.has(\"" + fieldName + "\")){\r\n");
+                    getJson.append("            " + fieldName + " = new " + fieldType + "(json.get(\"" + fieldName + "\").toJSONObject());\r\n");
+                    getJson.append("            " + idName + " = " + fieldName + ".getID();\r\n");
+                    getJson.append("        }\r\n");
+
+
+                    //if (json.has("accountID")){...
+                    getJson.append("        else if (json.has(\"" + idName + "\")){\r\n");
+                    getJson.append("            " + fieldName + " = null;\r\n");
+                    getJson.append("            " + idName + " = json.get(\"" + idName + "\").toLong();\r\n");
+                    getJson.append("        }\r\n");
+                }
                 else{ //Model
 
                     //if (json.has("account")){...
@@ -732,6 +1029,252 @@ public class Model {
 
 
 
+          //Update writeJson and readJson methods
+            if (field.isArray()){
+                writeJson.append("        if (" + fieldName + "!=null){\r\n");
+                writeJson.append("            out.append(\",\\\"" + fieldName + "\\\":[\");\r\n");
+                writeJson.append("            for (int i=0; i<" + fieldName + ".size(); i++){\r\n");
+                writeJson.append("                if (i>0) out.append(',');\r\n");
+                writeJson.append("                " + modelName + " obj = " + fieldName + ".get(i);\r\n");
+                writeJson.append("                if (obj==null) out.append(\"null\");\r\n");
+                writeJson.append("                else obj.writeJson(out, visited);\r\n");
+                writeJson.append("            }\r\n");
+                writeJson.append("            out.append(']');\r\n");
+                writeJson.append("        }\r\n");
+
+                readJson.append("                        case \"" + fieldName + "\":\r\n");
+                readJson.append("                            if (startArray(in)){\r\n");
+                readJson.append("                                do {\r\n");
+                readJson.append("                                    " + modelName + " obj = " + modelName + ".readJson(in);\r\n");
+                readJson.append("                                    if (obj!=null) model." + fieldName + ".add(obj);\r\n");
+                readJson.append("                                }\r\n");
+                readJson.append("                                while (nextElement(in));\r\n");
+                readJson.append("                            }\r\n");
+                readJson.append("                            break;\r\n");
+            }
+            else if (field.isModel()){
+                writeJson.append("        if (" + fieldName + "!=null){\r\n");
+                writeJson.append("            out.append(\",\\\"" + fieldName + "\\\":\");\r\n");
+                writeJson.append("            " + fieldName + ".writeJson(out, visited);\r\n");
+                writeJson.append("        }\r\n");
+                if (lazy){
+                    writeJson.append("        else if (" + idName + "!=null){\r\n");
+                    writeJson.append("            out.append(\",\\\"" + idName + "\\\":\").append(" + idName + ".toString());\r\n");
+                    writeJson.append("        }\r\n");
+                }
+
+                readJson.append("                        case \"" + fieldName + "\":\r\n");
+                readJson.append("                            model." + fieldName + " = " + fieldType + ".readJson(in);\r\n");
+                if (lazy) readJson.append("                            model." + idName + " = model." + fieldName + "==null ? null : model." + fieldName + ".getID();\r\n");
+                readJson.append("                            break;\r\n");
+                readJson.append("                        case \"" + fieldName + "ID\":\r\n");
+                readJson.append("                            v = readScalar(in);\r\n");
+                if (lazy){
+                    readJson.append("                            if (model." + fieldName + "==null) model." + idName + " = v==null ? null : Long.valueOf(v);\r\n");
+                }
+                else{
+                    readJson.append("                            if (model." + fieldName + "==null && v!=null){\r\n");
+                    readJson.append("                                try{\r\n");
+                    readJson.append("                                    model." + fieldName + " = new " + fieldType + "(Long.parseLong(v));\r\n");
+                    readJson.append("                                }\r\n");
+                    readJson.append("                                catch(SQLException e){}\r\n");
+                    readJson.append("                            }\r\n");
+                }
+                readJson.append("                            break;\r\n");
+            }
+            else if (password){
+                readJson.append("                        case \"" + fieldName + "\":\r\n");
+                if (!columnName.equals(fieldName)) readJson.append("                        case \"" + columnName + "\":\r\n");
+                readJson.append("                            v = readScalar(in);\r\n");
+                readJson.append("                            model.set" + methodName + "(v);\r\n");
+                readJson.append("                            break;\r\n");
+            }
+            else{
+
+              //Write value
+                String value;
+                if (fieldType.equals("String")) value = "writeString(out, " + fieldName + ");";
+                else if (fieldType.equals("Date")) value = "writeString(out, " + fieldName + ".toISOString());";
+                else if (fieldType.equals("Geometry")) value = "writeString(out, " + fieldName + ".toText());";
+                else if (fieldType.equals("byte[]")) value = "writeString(out, java.util.Base64.getEncoder().encodeToString(" + fieldName + "));";
+                else if (fieldType.equals("Double")) value = "out.append(" + fieldName + ".isNaN() || " + fieldName + ".isInfinite() ? \"null\" : " + fieldName + ".toString());";
+                else if (fieldType.endsWith("[]")){
+                    value = "out.append('[');\r\n" +
+                    "            for (int i=0; i<" + fieldName + ".length; i++){\r\n" +
+                    "                if (i>0) out.append(',');\r\n" +
+                    "                if (" + fieldName + "[i]==null) out.append(\"null\");\r\n" +
+                    (fieldType.equals("String[]") ?
+                    "                else writeString(out, " + fieldName + "[i]);\r\n" :
+                    "                else out.append(" + fieldName + "[i].toString());\r\n") +
+                    "            }\r\n" +
+                    "            out.append(']');";
+                }
+                else value = "out.append(" + fieldName + ".toString());";
+                writeJson.append("        if (" + fieldName + "!=null){\r\n");
+                writeJson.append("            out.append(\",\\\"" + fieldName + "\\\":\");\r\n");
+                writeJson.append("            " + value + "\r\n");
+                writeJson.append("        }\r\n");
+
+
+              //Read value
+                readJson.append("                        case \"" + fieldName + "\":\r\n");
+                if (fieldType.equals("Geometry") && !columnName.equals(fieldName)){
+                    readJson.append("                        case \"" + columnName + "\":\r\n");
+                }
+                if (fieldType.equals("JSONObject")){
+                    readJson.append("                            v = readRaw(in);\r\n");
+                    readJson.append("                            model." + fieldName + " = v==null ? null : new JSONObject(v);\r\n");
+                }
+                else if (fieldType.endsWith("[]") && !fieldType.equals("byte[]")){
+                    String type = fieldType.substring(0, fieldType.length()-2);
+                    readJson.append("                            {\r\n");
+                    readJson.append("                                java.util.ArrayList<String> list = readArray(in);\r\n");
+                    if (type.equals("String")){
+                        readJson.append("                                model." + fieldName + " = list==null ? null : list.toArray(new String[list.size()]);\r\n");
+                    }
+                    else{
+                        readJson.append("                                model." + fieldName + " = list==null ? null : new " + type + "[list.size()];\r\n");
+                        readJson.append("                                if (list!=null) for (int i=0; i<list.size(); i++){\r\n");
+                        readJson.append("                                    v = list.get(i);\r\n");
+                        readJson.append("                                    model." + fieldName + "[i] = v==null ? null : " + type + ".valueOf(v);\r\n");
+                        readJson.append("                                }\r\n");
+                    }
+                    readJson.append("                            }\r\n");
+                }
+                else{
+                    String read;
+                    if (fieldType.equals("String")) read = "v";
+                    else if (fieldType.equals("BigDecimal")) read = "new BigDecimal(v)";
+                    else if (fieldType.equals("Date")) read = "new JSONValue(v).toDate()";
+                    else if (fieldType.equals("byte[]")) read = "java.util.Base64.getDecoder().decode(v.startsWith(\"data:\") ? v.substring(v.indexOf(',')+1) : v)";
+                    else if (fieldType.equals("Geometry")) read = "new WKTReader().read(v)";
+                    else read = fieldType + ".valueOf(v)";
+                    readJson.append("                            v = readScalar(in);\r\n");
+                    if (read.equals("v")) readJson.append("                            model." + fieldName + " = v;\r\n");
+                    else readJson.append("                            model." + fieldName + " = v==null ? null : " + read + ";\r\n");
+                }
+                readJson.append("                            break;\r\n");
+            }
+
+
+          //Update writeTo and readFrom methods. Fields are tagged using their
+          //position in the model (tag 0 marks the end of the fields and tag 1
+          //is used for the id).
+            if (useBinary() && !password){
+                int tag = i+2;
+                String value;
+                String read;
+                if (field.isArray()){
+                    value =
+                    "writeVarLong(out, " + fieldName + ".size());\r\n" +
+                    "            for (" + modelName + " obj : " + fieldName + "){\r\n" +
+                    "                out.writeBoolean(obj!=null);\r\n" +
+                    "                if (obj!=null) obj.writeBinary(out, written);\r\n" +
+                    "            }";
+                    read =
+                    "for (long n=readVarLong(in); n>0; n--){\r\n" +
+                    "                                if (in.readBoolean()) model." + fieldName + ".add(" + modelName + ".readBinary(in, models));\r\n" +
+                    "                            }";
+                }
+                else if (field.isModel()){
+                    if (lazy){
+                        value =
+                        "out.writeBoolean(" + fieldName + "!=null);\r\n" +
+                        "            if (" + fieldName + "!=null) " + fieldName + ".writeBinary(out, written);\r\n" +
+                        "            else writeZigZag(out, " + idName + ");";
+                        read =
+                        "if (in.readBoolean()){\r\n" +
+                        "                                model." + fieldName + " = " + fieldType + ".readBinary(in, models);\r\n" +
+                        "                                model." + idName + " = model." + fieldName + ".getID();\r\n" +
+                        "                            }\r\n" +
+                        "                            else{\r\n" +
+                        "                                model." + idName + " = readZigZag(in);\r\n" +
+                        "                            }";
+                    }
+                    else{
+                        value = fieldName + ".writeBinary(out, written);";
+                        read = "model." + fieldName + " = " + fieldType + ".readBinary(in, models);";
+                    }
+                }
+                else if (fieldType.equals("String")){
+                    value = "writeUTF8(out, " + fieldName + ");";
+                    read = "model." + fieldName + " = readUTF8(in);";
+                }
+                else if (fieldType.equals("Integer")){
+                    value = "writeZigZag(out, " + fieldName + ");";
+                    read = "model." + fieldName + " = (int) readZigZag(in);";
+                }
+                else if (fieldType.equals("Long")){
+                    value = "writeZigZag(out, " + fieldName + ");";
+                    read = "model." + fieldName + " = readZigZag(in);";
+                }
+                else if (fieldType.equals("Double") || fieldType.equals("Boolean")){
+                    value = "out.write" + fieldType + "(" + fieldName + ");";
+                    read = "model." + fieldName + " = in.read" + fieldType + "();";
+                }
+                else if (fieldType.equals("BigDecimal")){
+                    value =
+                    "writeBytes(out, " + fieldName + ".unscaledValue().toByteArray());\r\n" +
+                    "            writeZigZag(out, " + fieldName + ".scale());";
+                    read = "model." + fieldName + " = new BigDecimal(new java.math.BigInteger(readBytes(in)), (int) readZigZag(in));";
+                }
+                else if (fieldType.equals("Date")){
+                    value = "writeZigZag(out, " + fieldName + ".getTime());";
+                    read = "model." + fieldName + " = new Date(readZigZag(in));";
+                }
+                else if (fieldType.equals("JSONObject")){
+                    value = "writeUTF8(out, " + fieldName + ".toString());";
+                    read = "model." + fieldName + " = new JSONObject(readUTF8(in));";
+                }
+                else if (fieldType.equals("Geometry")){
+
+                  //Write geometry as WKB with the SRID. Z values are included
+                  //if the first coordinate has one.
+                    String jts = options.get("jts")==null ? "org.locationtech.jts" : options.get("jts");
+                    value =
+                    jts + ".geom.Coordinate c = " + fieldName + ".getCoordinate();\r\n" +
+                    "            writeBytes(out, new " + jts + ".io.WKBWriter(c==null || Double.isNaN(c.z) ? 2 : 3, true).write(" + fieldName + "));";
+                    read =
+                    "try{\r\n" +
+                    "                                model." + fieldName + " = new " + jts + ".io.WKBReader().read(readBytes(in));\r\n" +
+                    "                            }\r\n" +
+                    "                            catch(" + jts + ".io.ParseException e){\r\n" +
+                    "                                throw new java.io.IOException(\"Invalid geometry\", e);\r\n" +
+                    "                            }";
+                }
+                else if (fieldType.equals("byte[]")){
+                    value = "writeBytes(out, " + fieldName + ");";
+                    read = "model." + fieldName + " = readBytes(in);";
+                }
+                else{ //String[] or Integer[]
+                    boolean str = fieldType.equals("String[]");
+                    String type = fieldType.substring(0, fieldType.length()-2);
+                    value =
+                    "writeVarLong(out, " + fieldName + ".length);\r\n" +
+                    "            for (" + type + " v : " + fieldName + "){\r\n" +
+                    "                out.writeBoolean(v!=null);\r\n" +
+                    "                if (v!=null) " + (str ? "writeUTF8(out, v)" : "writeZigZag(out, v)") + ";\r\n" +
+                    "            }";
+                    read =
+                    "model." + fieldName + " = new " + type + "[readLength(in)];\r\n" +
+                    "                            for (int n=0; n<model." + fieldName + ".length; n++){\r\n" +
+                    "                                if (in.readBoolean()) model." + fieldName + "[n] = " + (str ? "readUTF8(in)" : "(int) readZigZag(in)") + ";\r\n" +
+                    "                            }";
+                }
+
+                String notNull = fieldName + "!=null";
+                if (lazy) notNull = "(" + notNull + " || " + idName + "!=null)";
+                writeBinary.append("        if (" + notNull + "){\r\n");
+                writeBinary.append("            writeVarLong(out, " + tag + ");\r\n");
+                writeBinary.append("            " + value + "\r\n");
+                writeBinary.append("        }\r\n");
+
+                readBinary.append("                        case " + tag + ":\r\n");
+                readBinary.append("                            " + read + "\r\n");
+                readBinary.append("                            break;\r\n");
+            }
+
+
           //Update toJson method
             if (!field.isArray()){
                 if (password){
@@ -748,67 +1291,776 @@ public class Model {
 
       //Update the database constructor with hasMany variables
         if (hasMany.length()>0){
-            getValues.append("\r\n\r\n");
-            getValues.append("            try (javaxt.sql.Connection conn = getConnection(this.getClass())) {\r\n");
-            getValues.append(hasMany);
-            getValues.append("            }\r\n");
+            getModels.append("\r\n\r\n");
+            getModels.append("            try (javaxt.sql.Connection conn = getConnection(this.getClass())) {\r\n");
+            getModels.append("                java.sql.Connection c = conn.getConnection();\r\n");
+            getModels.append("                java.util.HashMap<Class<?>, java.util.HashMap<Long, Object>> cache = new java.util.HashMap<>();\r\n");
+            getModels.append("                cache.put(" + name + ".class, new java.util.HashMap<>());\r\n");
+            getModels.append("                cache.get(" + name + ".class).put(id, this);\r\n");
+            getModels.append(hasMany);
+            getModels.append("            }\r\n");
         }
 
 
-      //Generate list of field names used in the init() method
-        StringBuilder fieldNames = new StringBuilder("\r\n            \"id\"");
+      //Skip models and hasMany relationships in the database constructor
+      //when loading records in bulk (see find method)
+        String findModels = "";
+        if (loadModels.length()>0){
+            getModels.insert(0,
+            "\r\n\r\n" +
+            "          //Models are set by the loadModels method when loading in bulk\r\n" +
+            "            if (bulkLoad.get()!=null){\r\n" +
+            deferModels +
+            "                return;\r\n" +
+            "            }\r\n");
+
+            if (hasMany.length()>0) loadModels.insert(0,
+            "\r\n" +
+            "        java.sql.Connection c = conn.getConnection();\r\n" +
+            "        Object[] parentIDs = new Object[arr.length];\r\n" +
+            "        for (int i=0; i<arr.length; i++){\r\n" +
+            "            parentIDs[i] = arr[i].id;\r\n" +
+            "        }\r\n" +
+            "        java.sql.Array idArray = c.createArrayOf(\"bigint\", parentIDs);\r\n");
+
+            findModels =
+            "if (arr.length>0){\r\n" +
+            "            try (javaxt.sql.Connection conn = getConnection(" + name + ".class)){\r\n" +
+            "                loadModels(arr, conn, new java.util.HashMap<>());\r\n" +
+            "            }\r\n" +
+            "        }";
+        }
+
+
+      //Generate list of column names used to select records from the table.
+      //Arrays (hasMany) are stored in separate tables and are skipped. Each
+      //column is also added to the Column enum used in projection queries.
+        StringBuilder fieldNames = new StringBuilder("id");
+        ArrayList<String> columns = new ArrayList<>();
         for (Field field : fields){
+            if (field.isArray()) continue;
             String fieldType = field.getType();
             String columnName = field.getColumnName();
-            fieldNames.append(", ");
-            fieldNames.append("\r\n            ");
-            fieldNames.append("\"");
+            String column = columnName;
             if (fieldType.equals("Geometry")){
-                fieldNames.append("ST_AsText(" + columnName + ") as ");
+                column = (useWKB() ? "ST_AsBinary(" : "ST_AsText(") + columnName + ") as " + columnName;
             }
-            fieldNames.append(columnName);
-            fieldNames.append("\"");
+            fieldNames.append(", ");
+            fieldNames.append(column);
+            columns.add(Utils.camelCaseToUnderScore(field.getName()).toUpperCase() + "(\"" + column + "\")");
         }
 
 
-      //Replace keys in the class template
-        str = str.replace("${fieldMap}", fieldMap.toString());
-        str = str.replace("${fieldNames}", fieldNames.toString());
-        str = str.replace("${field[0]}", fields.get(0).getColumnName());
-        str = str.replace("${initArrays}", initArrays.toString().trim());
-        str = str.replace("${privateFields}", privateFields.toString().trim());
-        str = str.replace("${publicMembers}", (getSecurityPrincipalName + publicMembers.toString()).trim());
-        str = str.replace("${getModels}", getModels.toString());
-        str = str.replace("${getValues}", getValues.toString());
-        str = str.replace("${getJson}", getJson.toString().trim());
+      //Set values for keys in the class template
+        values.put("fieldMap", fieldMap.toString());
+        values.put("fieldNames", fieldNames.toString());
+        values.put("columns", String.join(",\r\n        ", columns));
+        values.put("column[0]", columns.isEmpty() ? "" : columns.get(0).substring(0, columns.get(0).indexOf("(")));
+        values.put("escapedTableName", escapedTableName.replace("\"", "\\\""));
+        values.put("field[0]", fields.get(0).getColumnName());
+        values.put("initArrays", initArrays.toString().trim());
+        values.put("privateFields", privateFields.toString().trim());
+        values.put("linkSQL", linkSQL.toString());
+        values.put("publicMembers", (getSecurityPrincipalName + publicMembers.toString()).trim());
+        values.put("getModels", getModels.toString());
+        values.put("getValues", getValues.toString());
+        getJson.append("\r\n        dirty.set(0, " + fields.size() + ");");
+        values.put("getJson", getJson.toString().trim());
+        values.put("copyFields", copyFields.toString());
+        values.put("setLoaded", "            loaded.set(0, " + fields.size() + ");\r\n" +
+            (snapshotValues.isEmpty() ? "" : "            snapshot = getSnapshot();\r\n"));
+        values.put("setLoadedColumns", loadedColumns.toString() +
+            (snapshotValues.isEmpty() ? "" : "            snapshot = getSnapshot();\r\n"));
+        values.put("snapshot", snapshotValues.isEmpty() ? "" :
+            "    private long[] snapshot; //hashes of mutable values (see getSnapshot)\r\n");
+        values.put("copySnapshot", snapshotValues.isEmpty() ? "" :
+            "        dst.snapshot = snapshot;\r\n");
+        values.put("findModels", findModels);
+        values.put("writeJson", writeJson.toString());
+        values.put("readJson", readJson.toString());
+        values.put("fieldCount", fields.size()+"");
+        values.put("loadModels", loadModels.toString());
+        values.put("deferModels", deferModels.toString().replace("                ", "            "));
+
+
+      //Add save methods. Records are saved using a single connection and
+      //transaction. Only columns that have been modified are updated and
+      //link tables are only updated when a hasMany list has changed.
+        String save =
+        "\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  //** save\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  /** Used to save a " + name + " in the database. The " + name + " and any\r\n" +
+        "   *  models in hasMany lists are saved in a single transaction.\r\n" +
+        "   */\r\n" +
+        "    public void save() throws SQLException {\r\n" +
+        "        java.util.IdentityHashMap<Object, Runnable[]> tx = new java.util.IdentityHashMap<>();\r\n" +
+        "        track(tx);\r\n" +
+        "        try (javaxt.sql.Connection conn = getConnection(this.getClass())){\r\n" +
+        "            java.sql.Connection c = conn.getConnection();\r\n" +
+        "            boolean autoCommit = c.getAutoCommit();\r\n" +
+        "            if (autoCommit) c.setAutoCommit(false);\r\n" +
+        "            try{\r\n" +
+        "                save(conn);\r\n" +
+        "                if (autoCommit){\r\n" +
+        "                    c.commit();\r\n" +
+        "                    for (Runnable[] r : tx.values()) if (r[1]!=null) r[1].run();\r\n" +
+        "                }\r\n" +
+        "            }\r\n" +
+        "            catch(SQLException | RuntimeException e){\r\n" +
+        "                if (autoCommit){\r\n" +
+        "                    c.rollback();\r\n" +
+        "                    for (Runnable[] r : tx.values()) r[0].run();\r\n" +
+        "                }\r\n" +
+        "                throw e;\r\n" +
+        "            }\r\n" +
+        "            finally{\r\n" +
+        "                if (autoCommit) c.setAutoCommit(true);\r\n" +
+        "            }\r\n" +
+        "        }\r\n" +
+        "    }\r\n\r\n\r\n" +
+
+        "  //**************************************************************************\r\n" +
+        "  //** save\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  /** Used to save a " + name + " using a given connection. Models in hasMany\r\n" +
+        "   *  lists are saved using the same connection. The caller is responsible\r\n" +
+        "   *  for committing the transaction if auto-commit is disabled.\r\n" +
+        "   */\r\n" +
+        "    public void save(javaxt.sql.Connection conn) throws SQLException {\r\n\r\n" +
+
+        "      //Insert new records in the " + this.tableName + " table\r\n" +
+        "        if (id==null){\r\n" +
+        "            saveAll(java.util.Collections.singletonList(this), 1000, conn);\r\n" +
+        "            return;\r\n" +
+        "        }\r\n\r\n";
+
+        if (saveIDs.length()>0) save +=
+        "\r\n" +
+        "      //Update foreign keys for models that are loaded on demand\r\n" +
+        saveIDs + "\r\n\r\n";
+
+        save +=
+        "      //Update record in the " + this.tableName + " table\r\n" +
+        "        saveChanges(conn);\r\n";
+
+        if (saveModels.length()>0) save +=
+        saveModels + "\r\n\r\n" +
+        "      //Update link tables\r\n" +
+        saveLinks;
+
+        save +=
+        "\r\n" +
+        "        loaded.or(dirty);\r\n" +
+        "        dirty.clear();\r\n";
+        if (!snapshotValues.isEmpty()) save +=
+        "        snapshot = getSnapshot();\r\n";
+
+        if (cacheSize!=null) save +=
+        "        CACHE.remove(id);\r\n";
+
+        save +=
+        "    }\r\n";
+
+
+      //Add method used to update modified columns
+        save +=
+        "\r\n\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  //** saveChanges\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  /** Used to update columns that have been modified since the " + name + "\r\n" +
+        "   *  was loaded or saved. Mutable values (e.g. dates, arrays, json) are\r\n" +
+        "   *  also updated if they have changed since they were loaded. Columns\r\n" +
+        "   *  that were not loaded (see stream) are only updated via setters.\r\n" +
+        "   */\r\n" +
+        "    private void saveChanges(javaxt.sql.Connection conn) throws SQLException {\r\n" +
+        "        java.sql.Connection c = conn.getConnection();\r\n" +
+        "        StringBuilder sql = new StringBuilder();\r\n" +
+        "        java.util.ArrayList<Object> params = new java.util.ArrayList<>();\r\n" +
+        (snapshotValues.isEmpty() ? "" : "        long[] hashes = getSnapshot();\r\n") +
+        saveChanges +
+        "        if (params.isEmpty()) return;\r\n\r\n" +
+
+        "        try (java.sql.PreparedStatement stmt = c.prepareStatement(\r\n" +
+        "            \"update " + escapedTableName.replace("\"", "\\\"") + " set \" + sql.substring(2) + \" where id=?\")){\r\n" +
+        "            for (int i=0; i<params.size(); i++){\r\n" +
+        "                stmt.setObject(i+1, params.get(i));\r\n" +
+        "            }\r\n" +
+        "            stmt.setLong(params.size()+1, id);\r\n" +
+        "            if (stmt.executeUpdate()==0) throw new SQLException(\"" + name + " not found: \" + id);\r\n" +
+        "        }\r\n" +
+        "    }\r\n";
+
+
+      //Add method used to find mutable values that have changed
+        if (!snapshotValues.isEmpty()) save +=
+        "\r\n\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  //** getSnapshot\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  /** Returns hashes of values that can be modified in place via a getter\r\n" +
+        "   *  (e.g. dates, arrays, json). The hashes are recorded when the " + name + "\r\n" +
+        "   *  is loaded or saved and are used to find values that have changed.\r\n" +
+        "   */\r\n" +
+        "    private long[] getSnapshot(){\r\n" +
+        "        return new long[]{\r\n" +
+        "            " + String.join(",\r\n            ", snapshotValues) + "\r\n" +
+        "        };\r\n" +
+        "    }\r\n";
+
+
+      //Add method used to restore the state of models if a transaction fails
+        save +=
+        "\r\n\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  //** track\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  /** Used to record the ID and modified fields of this " + name + " and any\r\n" +
+        "   *  models in hasMany lists before they are saved. For each model, the\r\n" +
+        "   *  first Runnable restores the recorded state if the transaction is\r\n" +
+        "   *  rolled back. The second (optional) Runnable is run after commit.\r\n" +
+        "   */\r\n" +
+        "    void track(java.util.IdentityHashMap<Object, Runnable[]> tx){\r\n" +
+        "        if (tx.containsKey(this)) return;\r\n" +
+        "        Long id = this.id;\r\n" +
+        "        java.util.BitSet bits = (java.util.BitSet) dirty.clone();\r\n" +
+        "        java.util.BitSet loadedBits = (java.util.BitSet) loaded.clone();\r\n" +
+        (snapshotValues.isEmpty() ? "" : "        long[] hashes = snapshot;\r\n") +
+        "        tx.put(this, new Runnable[]{\r\n" +
+        "            () -> {\r\n" +
+        "                this.id = id;\r\n" +
+        "                dirty.clear();\r\n" +
+        "                dirty.or(bits);\r\n" +
+        "                loaded.clear();\r\n" +
+        "                loaded.or(loadedBits);\r\n" +
+        (snapshotValues.isEmpty() ? "" : "                snapshot = hashes;\r\n") +
+        "            },\r\n" +
+        "            " + (cacheSize==null ? "null" : "() -> CACHE.remove(this.id)") + "\r\n" +
+        "        });\r\n" +
+        trackModels +
+        "    }\r\n";
+
+
+      //Add methods used to insert models in bulk
+        save +=
+        "\r\n\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  //** saveAll\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  /** Used to save a collection of " + name + "s using batched statements.\r\n" +
+        "   */\r\n" +
+        "    public static void saveAll(java.util.Collection<" + name + "> models) throws SQLException {\r\n" +
+        "        saveAll(models, 1000);\r\n" +
+        "    }\r\n\r\n\r\n" +
+
+        "  //**************************************************************************\r\n" +
+        "  //** saveAll\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  /** Used to save a collection of " + name + "s using batched statements.\r\n" +
+        "   *  All the " + name + "s are saved in a single transaction.\r\n" +
+        "   *  @param batchSize Max number of rows to send to the database at once.\r\n" +
+        "   */\r\n" +
+        "    public static void saveAll(java.util.Collection<" + name + "> models, int batchSize) throws SQLException {\r\n" +
+        "        java.util.IdentityHashMap<Object, Runnable[]> tx = new java.util.IdentityHashMap<>();\r\n" +
+        "        for (" + name + " obj : models) obj.track(tx);\r\n" +
+        "        try (javaxt.sql.Connection conn = getConnection(" + name + ".class)){\r\n" +
+        "            java.sql.Connection c = conn.getConnection();\r\n" +
+        "            boolean autoCommit = c.getAutoCommit();\r\n" +
+        "            if (autoCommit) c.setAutoCommit(false);\r\n" +
+        "            try{\r\n" +
+        "                saveAll(models, batchSize, conn);\r\n" +
+        "                if (autoCommit){\r\n" +
+        "                    c.commit();\r\n" +
+        "                    for (Runnable[] r : tx.values()) if (r[1]!=null) r[1].run();\r\n" +
+        "                }\r\n" +
+        "            }\r\n" +
+        "            catch(SQLException | RuntimeException e){\r\n" +
+        "                if (autoCommit){\r\n" +
+        "                    c.rollback();\r\n" +
+        "                    for (Runnable[] r : tx.values()) r[0].run();\r\n" +
+        "                }\r\n" +
+        "                throw e;\r\n" +
+        "            }\r\n" +
+        "            finally{\r\n" +
+        "                if (autoCommit) c.setAutoCommit(true);\r\n" +
+        "            }\r\n" +
+        "        }\r\n" +
+        "    }\r\n\r\n\r\n" +
+
+        "  //**************************************************************************\r\n" +
+        "  //** saveAll\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  /** Used to save a collection of " + name + "s using a given connection.\r\n" +
+        "   *  New " + name + "s are inserted in batches and assigned IDs using the\r\n" +
+        "   *  generated keys. Existing " + name + "s are saved individually.\r\n" +
+        "   *  @param batchSize Max number of rows to send to the database at once.\r\n" +
+        "   */\r\n" +
+        "    public static void saveAll(java.util.Collection<" + name + "> models, int batchSize,\r\n" +
+        "        javaxt.sql.Connection conn) throws SQLException {\r\n" +
+        "        if (batchSize<1) throw new IllegalArgumentException(\"Invalid batch size\");\r\n\r\n" +
+
+        "      //Save existing " + name + "s and find new ones\r\n" +
+        "        java.util.Set<" + name + "> set = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>());\r\n" +
+        "        java.util.ArrayList<" + name + "> inserts = new java.util.ArrayList<>();\r\n" +
+        "        for (" + name + " obj : models){\r\n" +
+        "            if (!set.add(obj)) continue;\r\n" +
+        "            if (obj.id==null) inserts.add(obj);\r\n" +
+        "            else obj.save(conn);\r\n" +
+        "        }\r\n" +
+        "        if (inserts.isEmpty()) return;\r\n\r\n\r\n" +
+
+        "      //Insert new " + name + "s. The " + name + "s are grouped by null columns\r\n" +
+        "      //that have a default value so those columns can be set to DEFAULT.\r\n" +
+        "        java.util.LinkedHashMap<java.util.BitSet, java.util.ArrayList<" + name + ">> groups = new java.util.LinkedHashMap<>();\r\n" +
+        "        for (" + name + " obj : inserts){\r\n" +
+        "            java.util.BitSet defaults = new java.util.BitSet();\r\n" +
+        insertDefaults +
+        "            groups.computeIfAbsent(defaults, k -> new java.util.ArrayList<>()).add(obj);\r\n" +
+        "        }\r\n\r\n" +
+
+        "        java.sql.Connection c = conn.getConnection();\r\n" +
+        "        for (java.util.Map.Entry<java.util.BitSet, java.util.ArrayList<" + name + ">> group : groups.entrySet()){\r\n" +
+        "            java.util.BitSet defaults = group.getKey();\r\n" +
+        "            java.util.ArrayList<" + name + "> rows = group.getValue();\r\n" +
+        "            try (java.sql.PreparedStatement stmt = c.prepareStatement(getInsertSQL(defaults), new String[]{\"id\"})){\r\n" +
+        "                for (int i=0; i<rows.size(); i+=batchSize){\r\n" +
+        "                    java.util.List<" + name + "> batch = rows.subList(i, Math.min(i+batchSize, rows.size()));\r\n" +
+        "                    for (" + name + " obj : batch){\r\n" +
+        "                        int n = 1;\r\n" +
+        insertParams +
+        "                        stmt.addBatch();\r\n" +
+        "                    }\r\n" +
+        "                    stmt.executeBatch();\r\n\r\n" +
+
+        "                  //Set IDs using the generated keys\r\n" +
+        "                    try (java.sql.ResultSet rs = stmt.getGeneratedKeys()){\r\n" +
+        "                        for (" + name + " obj : batch){\r\n" +
+        "                            if (!rs.next()) throw new SQLException(\"Failed to get generated keys\");\r\n" +
+        "                            obj.id = rs.getLong(1);\r\n" +
+        "                            obj.dirty.clear();\r\n" +
+        "                            obj.loaded.set(0, " + fields.size() + ");\r\n" +
+        (snapshotValues.isEmpty() ? "" : "                            obj.snapshot = obj.getSnapshot();\r\n") +
+        "                        }\r\n" +
+        "                    }\r\n" +
+        "                }\r\n" +
+        "            }\r\n" +
+        "        }\r\n" +
+        insertModels +
+        "    }\r\n\r\n\r\n" +
+
+        "  //**************************************************************************\r\n" +
+        "  //** getInsertSQL\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  /** Returns an SQL statement used to insert " + name + "s. Columns with a\r\n" +
+        "   *  default value are set to DEFAULT if they are in the given set.\r\n" +
+        "   */\r\n" +
+        "    private static String getInsertSQL(java.util.BitSet defaults){\r\n" +
+        "        return \"insert into " + escapedTableName.replace("\"", "\\\"") +
+        " (" + String.join(", ", insertColumns) + ") values (" + String.join(", ", insertValues) + ")\";\r\n" +
+        "    }\r\n";
+
+
+      //Add method used to update link tables
+        if (saveModels.length()>0) save +=
+        "\r\n\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  //** saveLinks\r\n" +
+        "  //**************************************************************************\r\n" +
+        "  /** Used to update links in a hasMany table. Only links that have been\r\n" +
+        "   *  added or removed are inserted or deleted using batched statements.\r\n" +
+        "   */\r\n" +
+        "    private static void saveLinks(javaxt.sql.Connection conn, String select, String insert,\r\n" +
+        "        String delete, long id, java.util.Collection<Long> ids) throws SQLException {\r\n\r\n" +
+
+        "      //Get links in the database\r\n" +
+        "        java.sql.Connection c = conn.getConnection();\r\n" +
+        "        java.util.HashSet<Long> currIDs = new java.util.HashSet<>();\r\n" +
+        "        try (java.sql.PreparedStatement stmt = c.prepareStatement(select)){\r\n" +
+        "            stmt.setLong(1, id);\r\n" +
+        "            try (java.sql.ResultSet rs = stmt.executeQuery()){\r\n" +
+        "                while (rs.next()) currIDs.add(rs.getLong(1));\r\n" +
+        "            }\r\n" +
+        "        }\r\n\r\n\r\n" +
+
+        "      //Find links to insert and delete\r\n" +
+        "        java.util.LinkedHashSet<Long> inserts = new java.util.LinkedHashSet<>(ids);\r\n" +
+        "        java.util.ArrayList<Long> deletes = new java.util.ArrayList<>();\r\n" +
+        "        for (Long currID : currIDs){\r\n" +
+        "            if (!inserts.remove(currID)) deletes.add(currID);\r\n" +
+        "        }\r\n\r\n\r\n" +
+
+        "      //Update link table\r\n" +
+        "        if (!deletes.isEmpty()){\r\n" +
+        "            try (java.sql.PreparedStatement stmt = c.prepareStatement(delete)){\r\n" +
+        "                for (long deleteID : deletes){\r\n" +
+        "                    stmt.setLong(1, id);\r\n" +
+        "                    stmt.setLong(2, deleteID);\r\n" +
+        "                    stmt.addBatch();\r\n" +
+        "                }\r\n" +
+        "                stmt.executeBatch();\r\n" +
+        "            }\r\n" +
+        "        }\r\n" +
+        "        if (!inserts.isEmpty()){\r\n" +
+        "            try (java.sql.PreparedStatement stmt = c.prepareStatement(insert)){\r\n" +
+        "                for (long insertID : inserts){\r\n" +
+        "                    stmt.setLong(1, id);\r\n" +
+        "                    stmt.setLong(2, insertID);\r\n" +
+        "                    stmt.addBatch();\r\n" +
+        "                }\r\n" +
+        "                stmt.executeBatch();\r\n" +
+        "            }\r\n" +
+        "        }\r\n" +
+        "    }\r\n";
+
+        values.put("saveModel", save);
+
+
+      //Add cache used by the ID constructor and get method
+        if (cacheSize!=null){
+            values.put("initModel",
+            "        " + name + " obj = CACHE.get(id);\r\n" +
+            "        if (obj==null){\r\n" +
+            "            init(id);\r\n" +
+            "            CACHE.put(this);\r\n" +
+            "        }\r\n" +
+            "        else{\r\n" +
+            "            obj.copyTo(this, new java.util.IdentityHashMap<>());\r\n" +
+            "        }");
+
+            values.put("getModel",
+            "      //Check cache if the " + name + " is requested by ID\r\n" +
+            "        if (args.length==2 && \"id=\".equals(args[0]) && args[1] instanceof Number){\r\n" +
+            "            " + name + " obj = CACHE.get(((Number) args[1]).longValue());\r\n" +
+            "            if (obj!=null) return obj.copy(new java.util.IdentityHashMap<>());\r\n" +
+            "        }\r\n\r\n" +
+            "        Object obj = _get(" + name + ".class, args);\r\n" +
+            "        if (obj==null) return null;\r\n" +
+            "        CACHE.put((" + name + ") obj);\r\n" +
+            "        return (" + name + ") obj;");
+
+            values.put("cache",
+            "\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  //** delete\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Used to delete the " + name + " from the database and the cache.\r\n" +
+            "   */\r\n" +
+            "    public void delete() throws SQLException {\r\n" +
+            "        Long id = this.id;\r\n" +
+            "        super.delete();\r\n" +
+            "        CACHE.remove(id);\r\n" +
+            "    }\r\n\r\n\r\n" +
 
+            "  //**************************************************************************\r\n" +
+            "  //** getCacheHits\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Returns the number of " + name + "s found in the cache.\r\n" +
+            "   */\r\n" +
+            "    public static long getCacheHits(){\r\n" +
+            "        return CACHE.hits.sum();\r\n" +
+            "    }\r\n\r\n\r\n" +
 
-      //Add custom save method as needed
-        if (saveModels.length()>0){
+            "  //**************************************************************************\r\n" +
+            "  //** getCacheMisses\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Returns the number of " + name + "s that were not found in the cache.\r\n" +
+            "   */\r\n" +
+            "    public static long getCacheMisses(){\r\n" +
+            "        return CACHE.misses.sum();\r\n" +
+            "    }\r\n\r\n\r\n" +
 
-            String fn =
+            "  //**************************************************************************\r\n" +
+            "  //** clearCache\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Used to remove all " + name + "s from the cache. This method should\r\n" +
+            "   *  be called if the " + this.tableName + " table is updated outside of this class.\r\n" +
+            "   */\r\n" +
+            "    public static void clearCache(){\r\n" +
+            "        CACHE.clear();\r\n" +
+            "    }\r\n\r\n\r\n" +
+
+            "  //**************************************************************************\r\n" +
+            "  //** Cache Class\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Used to cache " + name + "s by ID. Entries expire after " + cacheTTL + " seconds and\r\n" +
+            "   *  the oldest entries are evicted once there are more than " + cacheSize + " entries.\r\n" +
+            "   *  Cached " + name + "s are deep copies and are never returned directly\r\n" +
+            "   *  to callers. Replaced and removed entries are left in the queue and\r\n" +
+            "   *  skipped when they are polled.\r\n" +
+            "   */\r\n" +
+            "    private static final Cache CACHE = new Cache(" + cacheSize + ", " + cacheTTL + "*1000L);\r\n" +
+            "    private static class Cache {\r\n" +
+            "        private final java.util.concurrent.ConcurrentHashMap<Long, Entry> map = new java.util.concurrent.ConcurrentHashMap<>();\r\n" +
+            "        private final java.util.concurrent.ConcurrentLinkedQueue<Entry> queue = new java.util.concurrent.ConcurrentLinkedQueue<>();\r\n" +
+            "        private final java.util.concurrent.atomic.AtomicInteger queueSize = new java.util.concurrent.atomic.AtomicInteger();\r\n" +
+            "        private final java.util.concurrent.atomic.LongAdder hits = new java.util.concurrent.atomic.LongAdder();\r\n" +
+            "        private final java.util.concurrent.atomic.LongAdder misses = new java.util.concurrent.atomic.LongAdder();\r\n" +
+            "        private final int maxSize;\r\n" +
+            "        private final long ttl;\r\n\r\n" +
+
+            "        private static class Entry {\r\n" +
+            "            private final " + name + " model;\r\n" +
+            "            private final long expires;\r\n" +
+            "            private Entry(" + name + " model, long expires){\r\n" +
+            "                this.model = model;\r\n" +
+            "                this.expires = expires;\r\n" +
+            "            }\r\n" +
+            "        }\r\n\r\n" +
+
+            "        private Cache(int maxSize, long ttl){\r\n" +
+            "            this.maxSize = maxSize;\r\n" +
+            "            this.ttl = ttl;\r\n" +
+            "        }\r\n\r\n" +
+
+            "        private " + name + " get(long id){\r\n" +
+            "            Entry entry = map.get(id);\r\n" +
+            "            if (entry!=null && entry.expires<System.currentTimeMillis()){\r\n" +
+            "                map.remove(id, entry);\r\n" +
+            "                entry = null;\r\n" +
+            "            }\r\n" +
+            "            if (entry==null){\r\n" +
+            "                misses.increment();\r\n" +
+            "                return null;\r\n" +
+            "            }\r\n" +
+            "            hits.increment();\r\n" +
+            "            return entry.model;\r\n" +
+            "        }\r\n\r\n" +
+
+            "        private void put(" + name + " model){\r\n" +
+            "            if (model.id==null) return;\r\n" +
+            "            Entry entry = new Entry(model.copy(new java.util.IdentityHashMap<>()), System.currentTimeMillis()+ttl);\r\n" +
+            "            map.put(model.id, entry);\r\n" +
+            "            queue.add(entry);\r\n" +
+            "            queueSize.incrementAndGet();\r\n\r\n" +
+
+            "          //Evict oldest entries. Stale entries are simply dropped.\r\n" +
+            "            while (map.size()>maxSize){\r\n" +
+            "                Entry oldest = queue.poll();\r\n" +
+            "                if (oldest==null) break;\r\n" +
+            "                queueSize.decrementAndGet();\r\n" +
+            "                map.remove(oldest.model.id, oldest);\r\n" +
+            "            }\r\n\r\n" +
+
+            "          //Drop stale entries once the queue is twice the size of the cache\r\n" +
+            "            if (queueSize.get()>2*maxSize){\r\n" +
+            "                for (int i=queueSize.get(); i>0; i--){\r\n" +
+            "                    Entry next = queue.poll();\r\n" +
+            "                    if (next==null) break;\r\n" +
+            "                    queueSize.decrementAndGet();\r\n" +
+            "                    if (map.get(next.model.id)==next){\r\n" +
+            "                        queue.add(next);\r\n" +
+            "                        queueSize.incrementAndGet();\r\n" +
+            "                    }\r\n" +
+            "                }\r\n" +
+            "            }\r\n" +
+            "        }\r\n\r\n" +
+
+            "        private void remove(Long id){\r\n" +
+            "            if (id==null) return;\r\n" +
+            "            map.remove(id);\r\n" +
+            "        }\r\n\r\n" +
+
+            "        private void clear(){\r\n" +
+            "            map.clear();\r\n" +
+            "            queue.clear();\r\n" +
+            "            queueSize.set(0);\r\n" +
+            "        }\r\n" +
+            "    }\r\n");
+        }
+        else{
+            values.put("initModel", "        init(id);");
+            values.put("getModel",
+            "        Object obj = _get(" + name + ".class, args);\r\n" +
+            "        return obj==null ? null : (" + name + ") obj;");
+            values.put("cache", "");
+        }
+
+
+      //Add binary serialization methods as needed
+        if (useBinary()){
+            values.put("binary",
             "\r\n" +
             "  //**************************************************************************\r\n" +
-            "  //** save\r\n" +
+            "  //** writeTo\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Used to write the " + name + " to a given output using a compact binary\r\n" +
+            "   *  format. The output starts with a hash of the model schemas in the\r\n" +
+            "   *  package. Fields are tagged by position and numbers are written as\r\n" +
+            "   *  variable-length integers. Null values and passwords are omitted.\r\n" +
+            "   *  Models that appear more than once (e.g. circular references) are\r\n" +
+            "   *  written once and referenced by position afterwards.\r\n" +
+            "   */\r\n" +
+            "    public void writeTo(java.io.DataOutput out) throws java.io.IOException {\r\n" +
+            "        out.writeLong(SCHEMA_HASH);\r\n" +
+            "        writeBinary(out, new java.util.IdentityHashMap<>());\r\n" +
+            "    }\r\n\r\n\r\n" +
+
+            "  //**************************************************************************\r\n" +
+            "  //** writeBinary\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Used to write the " + name + " without a schema hash. Called by the\r\n" +
+            "   *  writeTo method and by models that reference a " + name + ". The output\r\n" +
+            "   *  starts with 0 for a new model or the position of a model that has\r\n" +
+            "   *  already been written, plus one.\r\n" +
+            "   *  @param written Models that have been written and their positions\r\n" +
+            "   */\r\n" +
+            "    void writeBinary(java.io.DataOutput out, java.util.IdentityHashMap<Object, Integer> written)\r\n" +
+            "        throws java.io.IOException {\r\n" +
+            "        Integer ref = written.get(this);\r\n" +
+            "        if (ref!=null){\r\n" +
+            "            writeVarLong(out, ref+1);\r\n" +
+            "            return;\r\n" +
+            "        }\r\n" +
+            "        written.put(this, written.size());\r\n" +
+            "        writeVarLong(out, 0);\r\n" +
+            "        if (id!=null){\r\n" +
+            "            writeVarLong(out, 1);\r\n" +
+            "            writeZigZag(out, id);\r\n" +
+            "        }\r\n" +
+            writeBinary +
+            "        writeVarLong(out, 0);\r\n" +
+            "    }\r\n\r\n\r\n" +
+
+            "  //**************************************************************************\r\n" +
+            "  //** readFrom\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Used to create a new " + name + " from the output of the writeTo method.\r\n" +
+            "   *  Throws an exception if the data was written using a different version\r\n" +
+            "   *  of the models. Fields are not marked as modified.\r\n" +
+            "   */\r\n" +
+            "    public static " + name + " readFrom(java.io.DataInput in) throws java.io.IOException {\r\n" +
+            "        if (in.readLong()!=SCHEMA_HASH) throw new java.io.IOException(\"Schema mismatch\");\r\n" +
+            "        return readBinary(in, new java.util.ArrayList<>());\r\n" +
+            "    }\r\n\r\n\r\n" +
+
+            "  //**************************************************************************\r\n" +
+            "  //** readBinary\r\n" +
             "  //**************************************************************************\r\n" +
-            "  /** Used to save a " + name + " in the database.\r\n" +
+            "  /** Used to read a " + name + " written by the writeBinary method.\r\n" +
+            "   *  @param models Models that have been read, in the order they were read\r\n" +
             "   */\r\n" +
-            "    public void save() throws SQLException {\r\n\r\n" +
+            "    static " + name + " readBinary(java.io.DataInput in, java.util.ArrayList<Object> models)\r\n" +
+            "        throws java.io.IOException {\r\n" +
+            "        long ref = readVarLong(in);\r\n" +
+            "        if (ref>0){\r\n" +
+            "            Object obj = ref>models.size() ? null : models.get((int) ref-1);\r\n" +
+            "            if (obj instanceof " + name + ") return (" + name + ") obj;\r\n" +
+            "            throw new java.io.IOException(\"Invalid reference: \" + ref);\r\n" +
+            "        }\r\n" +
+            "        " + name + " model = new " + name + "();\r\n" +
+            "        models.add(model);\r\n" +
+            "        while (true){\r\n" +
+            "            long tag = readVarLong(in);\r\n" +
+            "            switch ((int) tag){\r\n" +
+            "                case 0:\r\n" +
+            "                    return model;\r\n" +
+            "                case 1:\r\n" +
+            "                    model.id = readZigZag(in);\r\n" +
+            "                    break;\r\n" +
+            readBinary.toString().replace("\r\n        ", "\r\n").replaceFirst("^        ", "") +
+            "                default:\r\n" +
+            "                    throw new java.io.IOException(\"Invalid tag: \" + tag);\r\n" +
+            "            }\r\n" +
+            "        }\r\n" +
+            "    }\r\n\r\n\r\n" +
 
-            "      //Update record in the " + this.tableName + " table\r\n" +
-            "        super.save();\r\n\r\n\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  //** writeVarLong\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Used to write an unsigned number using 7 bits per byte. The high bit\r\n" +
+            "   *  of each byte is set if more bytes follow (see readVarLong).\r\n" +
+            "   */\r\n" +
+            "    private static void writeVarLong(java.io.DataOutput out, long v) throws java.io.IOException {\r\n" +
+            "        while ((v & ~0x7FL)!=0){\r\n" +
+            "            out.writeByte((int) ((v & 0x7F) | 0x80));\r\n" +
+            "            v >>>= 7;\r\n" +
+            "        }\r\n" +
+            "        out.writeByte((int) v);\r\n" +
+            "    }\r\n\r\n\r\n" +
 
-            "      //Save models\r\n" +
-            "        try (javaxt.sql.Connection conn = getConnection(this.getClass())) {\r\n" +
-            "            String target;\r\n" +
-            "            " + saveModels +
+            "  //**************************************************************************\r\n" +
+            "  //** readVarLong\r\n" +
+            "  //**************************************************************************\r\n" +
+            "    private static long readVarLong(java.io.DataInput in) throws java.io.IOException {\r\n" +
+            "        long v = 0;\r\n" +
+            "        for (int shift=0; shift<64; shift+=7){\r\n" +
+            "            int b = in.readUnsignedByte();\r\n" +
+            "            v |= (long) (b & 0x7F) << shift;\r\n" +
+            "            if ((b & 0x80)==0) return v;\r\n" +
             "        }\r\n" +
-            "    }\r\n";
+            "        throw new java.io.IOException(\"Invalid number\");\r\n" +
+            "    }\r\n\r\n\r\n" +
+
+            "  //**************************************************************************\r\n" +
+            "  //** writeZigZag\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Used to write a signed number. Small negative numbers are mapped to\r\n" +
+            "   *  small positive numbers so they can be written using fewer bytes.\r\n" +
+            "   */\r\n" +
+            "    private static void writeZigZag(java.io.DataOutput out, long v) throws java.io.IOException {\r\n" +
+            "        writeVarLong(out, (v << 1) ^ (v >> 63));\r\n" +
+            "    }\r\n\r\n\r\n" +
 
-            str = str.replace("${saveModel}", fn);
+            "  //**************************************************************************\r\n" +
+            "  //** readZigZag\r\n" +
+            "  //**************************************************************************\r\n" +
+            "    private static long readZigZag(java.io.DataInput in) throws java.io.IOException {\r\n" +
+            "        long v = readVarLong(in);\r\n" +
+            "        return (v >>> 1) ^ -(v & 1);\r\n" +
+            "    }\r\n\r\n\r\n" +
+
+            "  //**************************************************************************\r\n" +
+            "  //** readLength\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Used to read the length of a string, array or list.\r\n" +
+            "   */\r\n" +
+            "    private static int readLength(java.io.DataInput in) throws java.io.IOException {\r\n" +
+            "        long n = readVarLong(in);\r\n" +
+            "        if (n>Integer.MAX_VALUE) throw new java.io.IOException(\"Invalid length: \" + n);\r\n" +
+            "        return (int) n;\r\n" +
+            "    }\r\n\r\n\r\n" +
+
+            "  //**************************************************************************\r\n" +
+            "  //** writeUTF8\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Used to write a string of any length (see readUTF8).\r\n" +
+            "   */\r\n" +
+            "    private static void writeUTF8(java.io.DataOutput out, String str) throws java.io.IOException {\r\n" +
+            "        writeBytes(out, str.getBytes(java.nio.charset.StandardCharsets.UTF_8));\r\n" +
+            "    }\r\n\r\n\r\n" +
+
+            "  //**************************************************************************\r\n" +
+            "  //** readUTF8\r\n" +
+            "  //**************************************************************************\r\n" +
+            "    private static String readUTF8(java.io.DataInput in) throws java.io.IOException {\r\n" +
+            "        return new String(readBytes(in), java.nio.charset.StandardCharsets.UTF_8);\r\n" +
+            "    }\r\n\r\n\r\n" +
+
+            "  //**************************************************************************\r\n" +
+            "  //** writeBytes\r\n" +
+            "  //**************************************************************************\r\n" +
+            "  /** Used to write a length-prefixed byte array (see readBytes).\r\n" +
+            "   */\r\n" +
+            "    private static void writeBytes(java.io.DataOutput out, byte[] b) throws java.io.IOException {\r\n" +
+            "        writeVarLong(out, b.length);\r\n" +
+            "        out.write(b);\r\n" +
+            "    }\r\n\r\n\r\n" +
+
+            "  //**************************************************************************\r\n" +
+            "  //** readBytes\r\n" +
+            "  //**************************************************************************\r\n" +
+            "    private static byte[] readBytes(java.io.DataInput in) throws java.io.IOException {\r\n" +
+            "        byte[] b = new byte[readLength(in)];\r\n" +
+            "        in.readFully(b);\r\n" +
+            "        return b;\r\n" +
+            "    }\r\n");
+            values.put("schemaHash", "\r\n    static final long SCHEMA_HASH = " + getSchemaHash() + "L; //used to validate binary data");
         }
         else{
-            str = str.replace("${saveModel}", "");
+            values.put("binary", "");
+            values.put("schemaHash", "");
         }
 
 
@@ -827,16 +2079,16 @@ public class Model {
             "        return json;\r\n" +
             "    }\r\n";
 
-            str = str.replace("${toJson}", fn);
+            values.put("toJson", fn);
         }
         else{
-            str = str.replace("${toJson}", "");
+            values.put("toJson", "");
         }
 
 
       //Add includes
         if (includes.isEmpty()){
-            str = str.replace("${includes}", "");
+            values.put("includes", "");
         }
         else{
             StringBuilder s = new StringBuilder();
@@ -845,17 +2097,17 @@ public class Model {
                 s.append(include);
                 s.append(";\r\n");
             }
-            str = str.replace("${includes}", s.toString().trim());
+            values.put("includes", s.toString().trim());
         }
 
 
 
       //Special case for Models with a lastModified field
-        str = str.replace("${getLastModified}", getLastModified);
+        values.put("getLastModified", getLastModified);
 
 
 
-        return str;
+        return template.render(values);
     }
 
 
@@ -866,6 +2118,19 @@ public class Model {
    *  is targeted for a PostgreSQL database.
    */
     public String getTableSQL(){
+        String str = tableSQL;
+        if (str==null){
+            str = createTableSQL();
+            tableSQL = str;
+        }
+        return str;
+    }
+
+
+  //**************************************************************************
+  //** createTableSQL
+  //**************************************************************************
+    private String createTableSQL(){
 
       //Begin create table script
         StringBuilder str = new StringBuilder();
@@ -890,20 +2155,8 @@ public class Model {
             if (field.isRequired()) str.append(" NOT NULL");
 
             if (field.hasDefaultValue()){
-                Object defaultValue = field.getDefaultValue();
                 str.append(" DEFAULT ");
-                if (defaultValue instanceof String){
-                    String val = (String) defaultValue;
-                    if (val.contains("(") && val.endsWith(")")){
-                        str.append(val);
-                    }
-                    else{
-                        str.append("'" + val.replace("'", "''") + "'");
-                    }
-                }
-                else{
-                    str.append(defaultValue.toString());
-                }
+                str.append(getDefaultValue(field));
             }
 
 
@@ -939,6 +2192,19 @@ public class Model {
   /** Returns an SQL script used to generate diamond tables and indexes
    */
     public String getDiamondTableSQL(){
+        String str = diamondTableSQL;
+        if (str==null){
+            str = createDiamondTableSQL();
+            diamondTableSQL = str;
+        }
+        return str;
+    }
+
+
+  //**************************************************************************
+  //** createDiamondTableSQL
+  //**************************************************************************
+    private String createDiamondTableSQL(){
         StringBuilder str = new StringBuilder();
         Iterator<Field> it = fields.iterator();
         while (it.hasNext()){
@@ -1041,6 +2307,19 @@ public class Model {
    *  key constraint.
    */
     public String getForeignKeySQL(){
+        String str = foreignKeySQL;
+        if (str==null){
+            str = createForeignKeySQL();
+            foreignKeySQL = str;
+        }
+        return str;
+    }
+
+
+  //**************************************************************************
+  //** createForeignKeySQL
+  //**************************************************************************
+    private String createForeignKeySQL(){
         StringBuilder str = new StringBuilder();
         Iterator<Field> it = fields.iterator();
         while (it.hasNext()){
@@ -1082,6 +2361,19 @@ public class Model {
    *  the model.
    */
     public String getIndexSQL(){
+        String str = indexSQL;
+        if (str==null){
+            str = createIndexSQL();
+            indexSQL = str;
+        }
+        return str;
+    }
+
+
+  //**************************************************************************
+  //** createIndexSQL
+  //**************************************************************************
+    private String createIndexSQL(){
         StringBuilder str = new StringBuilder();
         String indexPrefix = "IDX_" + tableName.toUpperCase()+ "_";
         HashMap<String, String> columnNames = new HashMap<>();
@@ -1207,6 +2499,183 @@ public class Model {
     }
 
 
+  //**************************************************************************
+  //** getParameter
+  //**************************************************************************
+  /** Returns a placeholder for a given field in an insert or update
+   *  statement. Some types require a cast or a function call to convert
+   *  the parameter to the column type.
+   */
+    private String getParameter(Field field){
+        String fieldType = field.getType();
+        if (fieldType.equals("JSONObject")){
+            return "?::jsonb";
+        }
+        else if (fieldType.equals("Geometry")){
+            String columnType = field.getColumnType();
+            String fn = useWKB() ? "ST_GeomFromWKB" : "ST_GeomFromText";
+            int idx = columnType.indexOf(",");
+            if (idx<0) return fn + "(?)";
+            return fn + "(?, " + columnType.substring(idx+1, columnType.length()-1) + ")";
+        }
+        return "?";
+    }
+
+
+  //**************************************************************************
+  //** getHash
+  //**************************************************************************
+  /** Returns a Java expression used to compute a hash for a field value that
+   *  can be modified in place via a getter (e.g. json, arrays, dates,
+   *  geometry). Returns null for other fields.
+   */
+    private String getHash(Field field, String fieldName){
+        String fieldType = field.getType();
+        if (field.isArray() || field.isLastModifiedDate()) return null;
+        if (fieldType.equals("JSONObject")) return fieldName + "==null ? 0 : " + fieldName + ".toString().hashCode()";
+        if (fieldType.endsWith("[]")) return "java.util.Arrays.hashCode(" + fieldName + ")";
+        if (fieldType.equals("Date")) return fieldName + "==null ? 0 : " + fieldName + ".getTime()";
+        if (fieldType.equals("Geometry")) return fieldName + "==null ? 0 : 31L*java.util.Arrays.hashCode(" +
+            fieldName + ".getCoordinates()) + " + fieldName + ".getSRID()";
+        return null;
+    }
+
+
+  //**************************************************************************
+  //** getParameterValue
+  //**************************************************************************
+  /** Returns a Java expression used to get a parameter value for a given
+   *  field (see getParameter). Arrays are created using a java.sql.Connection
+   *  named "c".
+   *  @param obj Name of the variable with the model (e.g. "this")
+   */
+    private String getParameterValue(Field field, String obj){
+        String fieldName = Utils.underscoreToCamelCase(field.getName());
+        String fieldType = field.getType();
+        String v = obj + "." + fieldName;
+        if (field.isLazy()){
+            return v + "==null ? " + v + "ID : " + v + ".getID()";
+        }
+        else if (field.isModel()){
+            return v + "==null ? null : " + v + ".getID()";
+        }
+        else if (fieldType.equals("Date")){
+            return v + "==null ? null : new java.sql.Timestamp(" + v + ".getTime())";
+        }
+        else if (fieldType.equals("JSONObject")){
+            return v + "==null ? null : " + v + ".toString()";
+        }
+        else if (fieldType.equals("Geometry")){
+            if (useWKB()){
+                int dimension = field.getColumnType().contains("Z") ? 3 : 2;
+                return v + "==null ? null : new WKBWriter(" + dimension + ").write(" + v + ")";
+            }
+            return v + "==null ? null : " + v + ".toText()";
+        }
+        else if (fieldType.endsWith("[]") && !fieldType.equals("byte[]")){
+            String arrayType = field.getColumnType().split(" ")[0];
+            return v + "==null ? null : c.createArrayOf(\"" + arrayType + "\", " + v + ")";
+        }
+        return v;
+    }
+
+
+  //**************************************************************************
+  //** useBinary
+  //**************************************************************************
+  /** Returns true if the writeTo and readFrom methods should be generated.
+   *  Binary serialization is enabled with the "serialization" option (e.g.
+   *  var serialization = "binary";).
+   */
+    private boolean useBinary(){
+        return "binary".equalsIgnoreCase(options.get("serialization"));
+    }
+
+
+  //**************************************************************************
+  //** getSchema
+  //**************************************************************************
+  /** Returns the model name, field names, and field types as a string (e.g.
+   *  "Person;name:String;country:Country*").
+   */
+    protected String getSchema(){
+        StringBuilder str = new StringBuilder(name);
+        for (Field field : fields){
+            str.append(";");
+            str.append(field.getName());
+            str.append(":");
+            str.append(field.getType());
+            if (field.isLazy()) str.append("*");
+        }
+        return str.toString();
+    }
+
+
+  //**************************************************************************
+  //** setPackageSchema
+  //**************************************************************************
+  /** Used to set the schemas of all the models in the package. Referenced
+   *  models are written without a schema hash so the hash needs to cover
+   *  every model in the package (see getSchemaHash).
+   */
+    protected void setPackageSchema(String packageSchema){
+        this.packageSchema = packageSchema;
+        invalidate();
+    }
+
+
+  //**************************************************************************
+  //** getSchemaHash
+  //**************************************************************************
+  /** Returns a 64-bit FNV-1a hash of the model name and the package schema.
+   *  The hash changes whenever fields are added, removed, reordered, or
+   *  change type in any of the models in the package.
+   */
+    private long getSchemaHash(){
+        String str = "binary:2\n" + (packageSchema==null ? getSchema() : name + "\n" + packageSchema);
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : str.getBytes(java.nio.charset.StandardCharsets.UTF_8)){
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+
+  //**************************************************************************
+  //** useWKB
+  //**************************************************************************
+  /** Returns true if geometry values should be transferred to and from the
+   *  database as WKB instead of WKT. WKB is enabled with the "geometry"
+   *  option (e.g. var geometry = "wkb";).
+   */
+    private boolean useWKB(){
+        return "wkb".equalsIgnoreCase(options.get("geometry"));
+    }
+
+
+  //**************************************************************************
+  //** getDefaultValue
+  //**************************************************************************
+  /** Returns the default value for a given field as an SQL expression.
+   */
+    private String getDefaultValue(Field field){
+        Object defaultValue = field.getDefaultValue();
+        if (defaultValue instanceof String){
+            String val = (String) defaultValue;
+            if (val.contains("(") && val.endsWith(")")){
+                return val;
+            }
+            else{
+                return "'" + val.replace("'", "''") + "'";
+            }
+        }
+        else{
+            return defaultValue.toString();
+        }
+    }
+
+
   //**************************************************************************
   //** getTriggerSQL
   //**************************************************************************
@@ -1231,6 +2700,21 @@ public class Model {
     }
 
 
+  //**************************************************************************
+  //** invalidate
+  //**************************************************************************
+  /** Used to clear cached Java code and SQL. This method is called whenever
+   *  a field, foreign key, or package schema in the model is updated.
+   */
+    protected void invalidate(){
+        javaCode = null;
+        tableSQL = null;
+        diamondTableSQL = null;
+        foreignKeySQL = null;
+        indexSQL = null;
+    }
+
+
   //**************************************************************************
   //** hasLastModifiedField
   //**************************************************************************
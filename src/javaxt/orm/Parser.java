@@ -1,11 +1,11 @@
 package javaxt.orm;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javaxt.json.*;
 
 //Scripting includes
 import javax.script.*;
-import org.openjdk.nashorn.api.scripting.ScriptObjectMirror;
 import org.openjdk.nashorn.api.scripting.NashornScriptEngineFactory;
 import org.openjdk.nashorn.api.scripting.NashornScriptEngine;
 
@@ -21,7 +21,12 @@ import org.openjdk.nashorn.api.scripting.NashornScriptEngine;
 public class Parser {
 
     private Model[] models;
-    private static String[] optionalVars = new String[]{"schema", "jts"};
+    private static String[] optionalVars = new String[]{"schema", "jts", "geometry", "serialization"};
+
+  //Pool of script engines used to parse javascript. Engines are expensive to
+  //create so they are reused across parsers.
+    private static final ConcurrentLinkedQueue<NashornScriptEngine> engines = new ConcurrentLinkedQueue<>();
+    private static final int maxEngines = Runtime.getRuntime().availableProcessors();
 
 
   //**************************************************************************
@@ -39,7 +44,13 @@ public class Parser {
             init(new JSONObject(input));
         }
         catch(JSONException e){
-            init(parseJavaScript(input));
+
+          //Most model files simply assign object literals to variables. Try
+          //to parse these without a script engine. Fall back to the script
+          //engine if the file contains code that needs to be evaluated.
+            JSONObject json = parseLiterals(input);
+            if (json==null) json = parseJavaScript(input);
+            init(json);
         }
     }
 
@@ -86,52 +97,453 @@ public class Parser {
         }
 
 
+      //Set package schema used to validate binary data
+        if ("binary".equalsIgnoreCase(options.get("serialization"))){
+            TreeMap<String, String> schemas = new TreeMap<>();
+            for (Model model : arr) schemas.put(model.getName(), model.getSchema());
+            StringBuilder str = new StringBuilder();
+            for (String schema : schemas.values()) str.append(schema).append("\n");
+            for (Model model : arr) model.setPackageSchema(str.toString());
+        }
+
+
         this.models = arr.toArray(new Model[arr.size()]);
     }
 
 
+  //**************************************************************************
+  //** parseLiterals
+  //**************************************************************************
+  /** Used to parse a javascript containing models and a package name without
+   *  a script engine. Supports scripts that consist solely of variable
+   *  declarations with literal values (objects, arrays, strings, numbers,
+   *  booleans, and null). Comments, unquoted keys, single quoted strings and
+   *  trailing commas are supported. Returns null if the script contains
+   *  anything else.
+   */
+    static JSONObject parseLiterals(String js){
+        LinkedHashMap<String, String> vars;
+        try{
+            vars = new LiteralReader(js).getVariables();
+        }
+        catch(IllegalArgumentException e){
+            return null;
+        }
+        if (!vars.containsKey("package") || !vars.containsKey("models")) return null;
+
+
+      //Convert variables into json
+        StringBuilder str = new StringBuilder("{");
+        for (String key : vars.keySet()){
+            if (str.length()>1) str.append(",");
+            str.append(LiteralReader.quote(key));
+            str.append(":");
+            str.append(vars.get(key));
+        }
+        str.append("}");
+        JSONObject json = new JSONObject(str.toString());
+
+
+      //Create output using the same keys as parseJavaScript()
+        JSONObject output = new JSONObject();
+        output.set("package", json.get("package").toString());
+        for (String key : optionalVars){
+            String val = json.get(key).toString();
+            if (val!=null) output.set(key, val);
+        }
+        JSONObject models = json.get("models").toJSONObject();
+        if (models==null) return null;
+        output.set("models", models);
+        return output;
+    }
+
+
   //**************************************************************************
   //** parseJavaScript
   //**************************************************************************
   /** Used to parse a javascript containing models and a package name.
    */
-    private JSONObject parseJavaScript(String js) throws Exception {
+    static JSONObject parseJavaScript(String js) throws Exception {
         JSONObject output = new JSONObject();
 
 
-      //Instantiate ScriptEngine
-        String[] options = new String[] { "--language=es6" };
-        NashornScriptEngineFactory factory = new NashornScriptEngineFactory();
-        NashornScriptEngine engine = (NashornScriptEngine) factory.getScriptEngine(options);
+      //Get ScriptEngine from the pool
+        NashornScriptEngine engine = engines.poll();
+        if (engine==null){
+            String[] options = new String[] { "--language=es6" };
+            NashornScriptEngineFactory factory = new NashornScriptEngineFactory();
+            engine = (NashornScriptEngine) factory.getScriptEngine(options);
+        }
+
 
+        try{
 
-      //Extract variables
-        ScriptContext ctx = new SimpleScriptContext();
-        ctx.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
-        engine.eval(js, ctx);
+          //Extract variables. A new context is used for every script so that
+          //variables are not shared between scripts.
+            ScriptContext ctx = new SimpleScriptContext();
+            ctx.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+            engine.eval(js, ctx);
 
 
-      //Add package name to output
-        Object packageName = ctx.getAttribute("package");
-        output.set("package", packageName.toString());
+          //Add package name to output
+            Object packageName = ctx.getAttribute("package");
+            output.set("package", packageName.toString());
 
 
-      //Add options to output
-        for (String key : optionalVars){
-            Object schemaName = ctx.getAttribute(key);
-            if (schemaName!=null) output.set(key, schemaName.toString());
-        }
+          //Add options to output
+            for (String key : optionalVars){
+                Object schemaName = ctx.getAttribute(key);
+                if (schemaName!=null) output.set(key, schemaName.toString());
+            }
 
 
-      //Stringify models and convert to json
-        Object models = ctx.getAttribute("models");
-        ScriptObjectMirror json = (ScriptObjectMirror) engine.eval("JSON");
-        String str = json.callMember("stringify", models).toString();
-        output.set("models", new JSONObject(str));
+          //Stringify models and convert to json
+            String str = engine.eval("JSON.stringify(models)", ctx).toString();
+            output.set("models", new JSONObject(str));
+        }
+        finally{
 
+          //Return ScriptEngine to the pool
+            if (engines.size()<maxEngines) engines.offer(engine);
+        }
 
 
       //Return JSON
         return output;
     }
+
+
+  //**************************************************************************
+  //** LiteralReader
+  //**************************************************************************
+  /** Used to read variable declarations with literal values from a
+   *  javascript. Values are converted into json strings. Throws an
+   *  IllegalArgumentException if the script contains anything other than
+   *  variable declarations, literals, and comments.
+   */
+    private static class LiteralReader {
+
+        private String js;
+        private int i;
+
+        public LiteralReader(String js){
+            this.js = js;
+            this.i = 0;
+        }
+
+
+      /** Returns a map of variable names and json values
+       */
+        public LinkedHashMap<String, String> getVariables(){
+            LinkedHashMap<String, String> vars = new LinkedHashMap<>();
+            while (true){
+                skipWhitespace();
+                if (i>=js.length()) break;
+                if (js.charAt(i)==';'){
+                    i++;
+                    continue;
+                }
+
+                String keyword = readIdentifier();
+                if (!(keyword.equals("var") || keyword.equals("let") || keyword.equals("const"))){
+                    throw new IllegalArgumentException();
+                }
+
+                while (true){
+                    skipWhitespace();
+                    String name = readIdentifier();
+                    skipWhitespace();
+                    expect('=');
+                    StringBuilder value = new StringBuilder();
+                    readValue(value);
+                    vars.put(name, value.toString());
+
+                    skipWhitespace();
+                    if (i<js.length() && js.charAt(i)==','){
+                        i++;
+                        continue;
+                    }
+                    break;
+                }
+
+              //Statements must end with a semicolon, a new line, or the
+              //end of the script
+                skipWhitespace();
+                if (i<js.length() && js.charAt(i)!=';'){
+                    char c = js.charAt(i);
+                    if (!(Character.isLetter(c) && hasLineBreak())){
+                        throw new IllegalArgumentException();
+                    }
+                }
+            }
+            return vars;
+        }
+
+
+      /** Used to read a literal value and append it to a json string
+       */
+        private void readValue(StringBuilder json){
+            skipWhitespace();
+            if (i>=js.length()) throw new IllegalArgumentException();
+            char c = js.charAt(i);
+
+            if (c=='{'){
+                i++;
+                json.append("{");
+                boolean addComma = false;
+                while (true){
+                    skipWhitespace();
+                    if (i>=js.length()) throw new IllegalArgumentException();
+                    c = js.charAt(i);
+                    if (c=='}'){
+                        i++;
+                        break;
+                    }
+
+                  //Read key
+                    String key;
+                    if (c=='"' || c=='\''){
+                        key = readString();
+                    }
+                    else if (Character.isDigit(c)){
+                        StringBuilder num = new StringBuilder();
+                        readNumber(num);
+                        key = num.toString();
+                    }
+                    else{
+                        key = readIdentifier();
+                    }
+                    skipWhitespace();
+                    expect(':');
+
+
+                  //Read value
+                    if (addComma) json.append(",");
+                    json.append(quote(key));
+                    json.append(":");
+                    readValue(json);
+                    addComma = true;
+
+
+                  //Read comma (trailing commas are allowed)
+                    skipWhitespace();
+                    if (i<js.length() && js.charAt(i)==',') i++;
+                    else if (i<js.length() && js.charAt(i)!='}') throw new IllegalArgumentException();
+                }
+                json.append("}");
+            }
+            else if (c=='['){
+                i++;
+                json.append("[");
+                boolean addComma = false;
+                while (true){
+                    skipWhitespace();
+                    if (i>=js.length()) throw new IllegalArgumentException();
+                    if (js.charAt(i)==']'){
+                        i++;
+                        break;
+                    }
+
+                    if (addComma) json.append(",");
+                    readValue(json);
+                    addComma = true;
+
+                    skipWhitespace();
+                    if (i<js.length() && js.charAt(i)==',') i++;
+                    else if (i<js.length() && js.charAt(i)!=']') throw new IllegalArgumentException();
+                }
+                json.append("]");
+            }
+            else if (c=='"' || c=='\''){
+                json.append(quote(readString()));
+            }
+            else if (c=='-' || c=='+' || c=='.' || Character.isDigit(c)){
+                readNumber(json);
+            }
+            else{
+                String str = readIdentifier();
+                if (str.equals("true") || str.equals("false") || str.equals("null")){
+                    json.append(str);
+                }
+                else{
+                    throw new IllegalArgumentException(); //variable or expression
+                }
+            }
+
+
+          //Values must not be followed by an operator or a function call
+            skipWhitespace();
+            if (i<js.length()){
+                c = js.charAt(i);
+                if (!(c==',' || c==';' || c=='}' || c==']' || Character.isLetter(c))){
+                    throw new IllegalArgumentException();
+                }
+            }
+        }
+
+
+      /** Used to read a number and append it to a json string
+       */
+        private void readNumber(StringBuilder json){
+            int start = i;
+            if (js.charAt(i)=='-' || js.charAt(i)=='+') i++;
+            if (js.startsWith("0x", i) || js.startsWith("0X", i)){
+                i+=2;
+                int x = i;
+                while (i<js.length() && Character.digit(js.charAt(i), 16)>=0) i++;
+                if (x==i) throw new IllegalArgumentException();
+                long val = Long.parseLong(js.substring(x, i), 16);
+                json.append(js.charAt(start)=='-' ? -val : val);
+                return;
+            }
+            while (i<js.length()){
+                char c = js.charAt(i);
+                if (Character.isDigit(c) || c=='.' || c=='e' || c=='E' ||
+                   ((c=='-' || c=='+') && (js.charAt(i-1)=='e' || js.charAt(i-1)=='E'))){
+                    i++;
+                }
+                else{
+                    break;
+                }
+            }
+            try{
+                String str = js.substring(start, i);
+                if (str.startsWith("+")) str = str.substring(1);
+                java.math.BigDecimal num = new java.math.BigDecimal(str);
+                json.append(str.contains(".") || str.contains("e") || str.contains("E") ?
+                num.toString() : num.toBigInteger().toString());
+            }
+            catch(NumberFormatException e){
+                throw new IllegalArgumentException();
+            }
+        }
+
+
+      /** Used to read a single or double quoted string
+       */
+        private String readString(){
+            char quote = js.charAt(i++);
+            StringBuilder str = new StringBuilder();
+            while (true){
+                if (i>=js.length()) throw new IllegalArgumentException();
+                char c = js.charAt(i++);
+                if (c==quote) break;
+                if (c=='\n' || c=='\r') throw new IllegalArgumentException();
+                if (c=='\\'){
+                    if (i>=js.length()) throw new IllegalArgumentException();
+                    c = js.charAt(i++);
+                    switch (c){
+                        case 'n': str.append('\n'); break;
+                        case 'r': str.append('\r'); break;
+                        case 't': str.append('\t'); break;
+                        case 'b': str.append('\b'); break;
+                        case 'f': str.append('\f'); break;
+                        case 'v': str.append((char) 0x0B); break;
+                        case '0': str.append('\0'); break;
+                        case 'x': str.append((char) readHex(2)); break;
+                        case 'u': str.append((char) readHex(4)); break;
+                        case '\r': if (i<js.length() && js.charAt(i)=='\n') i++; break;
+                        case '\n': break;
+                        default: str.append(c);
+                    }
+                }
+                else{
+                    str.append(c);
+                }
+            }
+            return str.toString();
+        }
+
+
+        private int readHex(int len){
+            if (i+len>js.length()) throw new IllegalArgumentException();
+            try{
+                int val = Integer.parseInt(js.substring(i, i+len), 16);
+                i+=len;
+                return val;
+            }
+            catch(NumberFormatException e){
+                throw new IllegalArgumentException();
+            }
+        }
+
+
+        private String readIdentifier(){
+            int start = i;
+            while (i<js.length()){
+                char c = js.charAt(i);
+                if (Character.isLetterOrDigit(c) || c=='_' || c=='$') i++;
+                else break;
+            }
+            if (start==i) throw new IllegalArgumentException();
+            return js.substring(start, i);
+        }
+
+
+        private void expect(char c){
+            if (i>=js.length() || js.charAt(i)!=c) throw new IllegalArgumentException();
+            i++;
+        }
+
+
+      /** Returns true if there is a line break between the current position
+       *  and the previous non-whitespace character
+       */
+        private boolean hasLineBreak(){
+            for (int x=i-1; x>=0; x--){
+                char c = js.charAt(x);
+                if (c=='\n' || c=='\r') return true;
+                if (!Character.isWhitespace(c)) return false;
+            }
+            return true;
+        }
+
+
+      /** Used to skip whitespace and comments
+       */
+        private void skipWhitespace(){
+            while (i<js.length()){
+                char c = js.charAt(i);
+                if (Character.isWhitespace(c)){
+                    i++;
+                }
+                else if (js.startsWith("//", i)){
+                    int x = js.indexOf("\n", i);
+                    i = x<0 ? js.length() : x+1;
+                }
+                else if (js.startsWith("/*", i)){
+                    int x = js.indexOf("*/", i+2);
+                    if (x<0) throw new IllegalArgumentException();
+                    i = x+2;
+                }
+                else{
+                    break;
+                }
+            }
+        }
+
+
+      /** Returns a json string
+       */
+        public static String quote(String str){
+            StringBuilder json = new StringBuilder("\"");
+            for (int i=0; i<str.length(); i++){
+                char c = str.charAt(i);
+                switch (c){
+                    case '"': json.append("\\\""); break;
+                    case '\\': json.append("\\\\"); break;
+                    case '\n': json.append("\\n"); break;
+                    case '\r': json.append("\\r"); break;
+                    case '\t': json.append("\\t"); break;
+                    case '\b': json.append("\\b"); break;
+                    case '\f': json.append("\\f"); break;
+                    default:
+                        if (c<0x20) json.append(String.format("\\u%04x", (int) c));
+                        else json.append(c);
+                }
+            }
+            json.append("\"");
+            return json.toString();
+        }
+    }
 }
\ No newline at end of file
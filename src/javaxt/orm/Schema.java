@@ -1,4 +1,5 @@
 package javaxt.orm;
+import java.util.concurrent.Executor;
 
 //******************************************************************************
 //**  Schema Class
@@ -16,8 +17,12 @@ public class Schema {
   //**************************************************************************
   //** Constructor
   //**************************************************************************
+  /** Creates a new instance of this class. Models are sorted by their
+   *  dependencies so that the script is generated in a fixed order, with
+   *  tables created after the tables they reference.
+   */
     public Schema(Model[] models){
-        this.models = models;
+        this.models = new DependencyGraph(models).getModels();
     }
 
 
@@ -28,6 +33,20 @@ public class Schema {
    *  database.
    */
     public String getSQLScript(){
+        return getSQLScript(null);
+    }
+
+
+  //**************************************************************************
+  //** getSQL
+  //**************************************************************************
+  /** Returns a SQL script used to generate tables and indexes in a relational
+   *  database.
+   *  @param executor Optional executor used to generate SQL for the models
+   *  concurrently (e.g. ForkJoinPool.commonPool()). The output is identical
+   *  to the output generated without an executor.
+   */
+    public String getSQLScript(Executor executor){
         boolean hasGeometry = false;
         boolean hasLastModifiedField = false;
         java.util.HashSet<String> schemas = new java.util.HashSet<String>();
@@ -56,6 +75,14 @@ public class Schema {
         }
 
 
+      //Generate SQL for each model
+        String[] tableSQL = Utils.generate(models, Model::getTableSQL, executor);
+        String[] diamondTableSQL = Utils.generate(models, Model::getDiamondTableSQL, executor);
+        String[] foreignKeySQL = Utils.generate(models, Model::getForeignKeySQL, executor);
+        String[] indexSQL = Utils.generate(models, Model::getIndexSQL, executor);
+        String[] triggerSQL = Utils.generate(models, Model::getTriggerSQL, executor);
+
+
       //Generate SQL script
         StringBuilder sql = new StringBuilder();
 
@@ -70,12 +97,11 @@ public class Schema {
         }
 
 
-        for (Model model : models){
+        for (String str : tableSQL){
             sql.append("\r\n");
-            sql.append(model.getTableSQL());
+            sql.append(str);
         }
-        for (Model model : models){
-            String str = model.getDiamondTableSQL();
+        for (String str : diamondTableSQL){
             if (!str.isEmpty()){
                 sql.append("\r\n");
                 sql.append(str);
@@ -83,13 +109,13 @@ public class Schema {
         }
 
         sql.append("\r\n\r\n");
-        for (Model model : models){
-            sql.append(model.getForeignKeySQL());
+        for (String str : foreignKeySQL){
+            sql.append(str);
         }
 
         sql.append("\r\n\r\n");
-        for (Model model : models){
-            sql.append(model.getIndexSQL());
+        for (String str : indexSQL){
+            sql.append(str);
         }
 
         if (hasLastModifiedField){
@@ -105,8 +131,8 @@ public class Schema {
             sql.append("\r\n\r\n");
         }
 
-        for (Model model : models){
-            sql.append(model.getTriggerSQL());
+        for (String str : triggerSQL){
+            sql.append(str);
         }
 
         return sql.toString();
@@ -0,0 +1,120 @@
+package javaxt.orm;
+import java.util.*;
+
+//******************************************************************************
+//**  Template Class
+//******************************************************************************
+/**
+ *   Used to generate text from a template with ${key} placeholders (e.g. the
+ *   Class.txt template used to generate Java classes). The template is parsed
+ *   once into a list of literals and placeholders. Each call to render() then
+ *   generates text in a single pass.
+ *
+ ******************************************************************************/
+
+public class Template {
+
+    private String[] literals;
+    private String[] keys;
+    private int length;
+
+
+  //**************************************************************************
+  //** Constructor
+  //**************************************************************************
+  /** Creates a new instance of this class using the text of a template.
+   */
+    public Template(String text){
+        if (text==null) text = "";
+
+        ArrayList<String> literals = new ArrayList<>();
+        ArrayList<String> keys = new ArrayList<>();
+        int start = 0;
+        while (true){
+            int x = text.indexOf("${", start);
+            int y = x<0 ? -1 : text.indexOf("}", x+2);
+            if (y<0){
+                literals.add(text.substring(start));
+                break;
+            }
+            literals.add(text.substring(start, x));
+            keys.add(text.substring(x+2, y));
+            start = y+1;
+        }
+
+        this.literals = literals.toArray(new String[literals.size()]);
+        this.keys = keys.toArray(new String[keys.size()]);
+        for (String literal : this.literals){
+            length += literal.length();
+        }
+    }
+
+
+  //**************************************************************************
+  //** getKeys
+  //**************************************************************************
+  /** Returns the keys of all the placeholders found in the template, in the
+   *  order they appear. Keys that appear more than once are only returned
+   *  once.
+   */
+    public String[] getKeys(){
+        LinkedHashSet<String> arr = new LinkedHashSet<>(Arrays.asList(keys));
+        return arr.toArray(new String[arr.size()]);
+    }
+
+
+  //**************************************************************************
+  //** render
+  //**************************************************************************
+  /** Returns the text of the template with placeholders replaced with the
+   *  given values. Placeholders without an entry in the map are left as is.
+   *  Null values are replaced with an empty string.
+   */
+    public String render(Map<String, String> values){
+
+      //Compute output length
+        int length = this.length;
+        for (String key : keys){
+            if (values.containsKey(key)){
+                String value = values.get(key);
+                if (value!=null) length += value.length();
+            }
+            else{
+                length += key.length()+3;
+            }
+        }
+
+
+      //Generate output
+        StringBuilder str = new StringBuilder(length);
+        for (int i=0; i<keys.length; i++){
+            str.append(literals[i]);
+            String key = keys[i];
+            if (values.containsKey(key)){
+                String value = values.get(key);
+                if (value!=null) str.append(value);
+            }
+            else{
+                str.append("${").append(key).append("}");
+            }
+        }
+        str.append(literals[literals.length-1]);
+        return str.toString();
+    }
+
+
+  //**************************************************************************
+  //** toString
+  //**************************************************************************
+  /** Returns the text of the template.
+   */
+    public String toString(){
+        StringBuilder str = new StringBuilder();
+        for (int i=0; i<keys.length; i++){
+            str.append(literals[i]);
+            str.append("${").append(keys[i]).append("}");
+        }
+        str.append(literals[literals.length-1]);
+        return str.toString();
+    }
+}
@@ -1,4 +1,7 @@
 package javaxt.orm;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.function.Function;
 
 //******************************************************************************
 //**  Utils Class
@@ -84,6 +87,45 @@ public class Utils {
     }
 
 
+  //**************************************************************************
+  //** generate
+  //**************************************************************************
+  /** Used to generate code (e.g. Java or SQL) for each model in an array.
+   *  Returns the output for each model in the same order as the input models.
+   *  @param fn Function used to generate code for a model (e.g.
+   *  Model::getJavaCode).
+   *  @param executor Optional executor used to generate code concurrently
+   *  (e.g. ForkJoinPool.commonPool()). If null, code is generated in the
+   *  current thread.
+   */
+    public static String[] generate(Model[] models, Function<Model, String> fn, Executor executor){
+        String[] output = new String[models.length];
+        if (executor==null){
+            for (int i=0; i<models.length; i++){
+                output[i] = fn.apply(models[i]);
+            }
+        }
+        else{
+            ArrayList<CompletableFuture<String>> futures = new ArrayList<>();
+            for (Model model : models){
+                futures.add(CompletableFuture.supplyAsync(() -> fn.apply(model), executor));
+            }
+            try{
+                for (int i=0; i<models.length; i++){
+                    output[i] = futures.get(i).join();
+                }
+            }
+            catch(CompletionException e){
+                Throwable t = e.getCause();
+                if (t instanceof RuntimeException) throw (RuntimeException) t;
+                if (t instanceof Error) throw (Error) t;
+                throw e;
+            }
+        }
+        return output;
+    }
+
+
   //**************************************************************************
   //** capitalize
   //**************************************************************************
@@ -1,4 +1,6 @@
 package javaxt.orm;
+import java.util.*;
+import java.util.concurrent.Executor;
 
 //******************************************************************************
 //**  Writer Class
@@ -10,6 +12,8 @@ package javaxt.orm;
 
 public class Writer {
 
+    private static final String manifest = ".manifest";
+
 
   //**************************************************************************
   //** write
@@ -17,16 +21,87 @@ public class Writer {
   /** Used to output Java classes and SQL script to a given directory.
    */
     public static void write(Model[] models, javaxt.io.Directory output){
+        write(models, output, null);
+    }
 
-      //Create Java classes
-        for (Model model : models){
-            javaxt.io.File file = new javaxt.io.File(output, model.getName() + ".java");
-            file.write(model.getJavaCode());
+
+  //**************************************************************************
+  //** write
+  //**************************************************************************
+  /** Used to output Java classes and SQL script to a given directory.
+   *  @param executor Optional executor used to generate the Java classes and
+   *  SQL script concurrently (e.g. ForkJoinPool.commonPool()). The output is
+   *  identical to the output generated without an executor.
+   */
+    public static void write(Model[] models, javaxt.io.Directory output, Executor executor){
+        write(models, output, executor, false);
+    }
+
+
+  //**************************************************************************
+  //** write
+  //**************************************************************************
+  /** Used to output Java classes and SQL script to a given directory.
+   *  @param executor Optional executor used to generate the Java classes and
+   *  SQL script concurrently (e.g. ForkJoinPool.commonPool()).
+   *  @param incremental If true, files are only written if their content has
+   *  changed so that unchanged files keep their timestamps. Files generated
+   *  by a previous run for models that no longer exist are deleted. The list
+   *  of generated files is kept in a manifest file in the output directory.
+   *  @return Names of files that were created, updated, or deleted.
+   */
+    public static String[] write(Model[] models, javaxt.io.Directory output, Executor executor, boolean incremental){
+
+      //Generate code
+        String[] javaCode = Utils.generate(models, Model::getJavaCode, executor);
+        String sql = new Schema(models).getSQLScript(executor);
+
+
+      //Create list of files to write
+        LinkedHashMap<String, String> files = new LinkedHashMap<>();
+        for (int i=0; i<models.length; i++){
+            files.put(models[i].getName() + ".java", javaCode[i]);
         }
+        files.put("Schema.sql", sql);
 
 
-      //Create SQL script
-        javaxt.io.File file = new javaxt.io.File(output, "Schema.sql");
-        file.write(new Schema(models).getSQLScript());
+      //Create Java classes and SQL script
+        ArrayList<String> updates = new ArrayList<>();
+        for (String fileName : files.keySet()){
+            String text = files.get(fileName);
+            javaxt.io.File file = new javaxt.io.File(output, fileName);
+            if (incremental && file.exists()){
+                if (text.equals(file.getText())) continue;
+            }
+            file.write(text);
+            updates.add(fileName);
+        }
+
+
+      //Delete files from a previous run and update the manifest
+        if (incremental){
+            javaxt.io.File file = new javaxt.io.File(output, manifest);
+            if (file.exists()){
+                String text = file.getText();
+                if (text!=null){
+                    for (String fileName : text.split("\r\n")){
+                        fileName = fileName.trim();
+                        if (fileName.isEmpty() || files.containsKey(fileName)) continue;
+                        javaxt.io.File f = new javaxt.io.File(output, fileName);
+                        if (f.exists()){
+                            f.delete();
+                            updates.add(fileName);
+                        }
+                    }
+                }
+            }
+
+            String text = String.join("\r\n", files.keySet()) + "\r\n";
+            if (!file.exists() || !text.equals(file.getText())){
+                file.write(text);
+            }
+        }
+
+        return updates.toArray(new String[updates.size()]);
     }
-}
\ No newline at end of file
+}
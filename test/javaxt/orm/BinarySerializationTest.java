@@ -0,0 +1,272 @@
+package javaxt.orm;
+import java.io.*;
+import java.lang.reflect.Method;
+import org.locationtech.jts.geom.Geometry;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+//******************************************************************************
+//**  BinarySerializationTest
+//******************************************************************************
+/**
+ *   Round-trip tests for the writeTo and readFrom methods generated when the
+ *   "serialization" option is set to "binary". Models are compiled at runtime
+ *   and invoked via reflection.
+ *
+ ******************************************************************************/
+
+public class BinarySerializationTest {
+
+    private static final String models =
+    "{\"package\": \"com.example.binary\", \"serialization\": \"binary\", \"models\": {" +
+    "  \"Person\": {" +
+    "    \"fields\": [" +
+    "      {\"name\": \"name\", \"type\": \"string\"}," +
+    "      {\"name\": \"age\", \"type\": \"int\"}," +
+    "      {\"name\": \"visits\", \"type\": \"long\"}," +
+    "      {\"name\": \"score\", \"type\": \"double\"}," +
+    "      {\"name\": \"salary\", \"type\": \"decimal\"}," +
+    "      {\"name\": \"active\", \"type\": \"boolean\"}," +
+    "      {\"name\": \"updated\", \"type\": \"date\"}," +
+    "      {\"name\": \"info\", \"type\": \"json\"}," +
+    "      {\"name\": \"photo\", \"type\": \"binary\"}," +
+    "      {\"name\": \"tags\", \"type\": \"string[]\"}," +
+    "      {\"name\": \"ratings\", \"type\": \"int[]\"}," +
+    "      {\"name\": \"location\", \"type\": \"geo\"}," +
+    "      {\"name\": \"country\", \"type\": \"Country\"}," +
+    "      {\"name\": \"manager\", \"type\": \"Person\", \"lazy\": true}" +
+    "    ]," +
+    "    \"hasMany\": [" +
+    "      {\"model\": \"Phone\", \"name\": \"phoneNumbers\"}" +
+    "    ]" +
+    "  }," +
+    "  \"Country\": {" +
+    "    \"fields\": [" +
+    "      {\"name\": \"name\", \"type\": \"string\"}," +
+    "      {\"name\": \"code\", \"type\": \"string\"}" +
+    "    ]" +
+    "  }," +
+    "  \"Phone\": {" +
+    "    \"fields\": [" +
+    "      {\"name\": \"number\", \"type\": \"string\"}," +
+    "      {\"name\": \"primary\", \"type\": \"boolean\"}" +
+    "    ]" +
+    "  }" +
+    "}}";
+
+    private static final String person =
+    "{\"id\": 1, \"name\": \"Jos\\u00e9\", \"age\": 42, \"visits\": 9007199254740993," +
+    " \"score\": 87.5, \"salary\": 123456.780, \"active\": false," +
+    " \"updated\": \"2024-01-01T12:00:00.123Z\"," +
+    " \"info\": {\"title\": \"Engineer\", \"skills\": [\"java\", \"sql\"]}," +
+    " \"photo\": \"AQIDBA==\"," +
+    " \"tags\": [\"a\", null, \"\"]," +
+    " \"ratings\": [5, null, -3]," +
+    " \"location\": \"POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))\"," +
+    " \"country\": {\"id\": 2, \"name\": \"United States\", \"code\": \"US\"}," +
+    " \"manager\": {\"id\": 3, \"name\": \"Jane\", \"phoneNumbers\": [{\"id\": 5, \"number\": \"555-0000\"}]}," +
+    " \"phoneNumbers\": [{\"id\": 4, \"number\": \"555-1234\", \"primary\": true}," +
+    " {\"number\": \"555-5678\", \"primary\": false}]}";
+
+
+  //**************************************************************************
+  //** testAllFields
+  //**************************************************************************
+  /** Used to round-trip a Person with every field type, a nested model, a
+   *  lazy model and a hasMany list.
+   */
+    @Test
+    public void testAllFields() throws Exception {
+        Class<?> c = getClass(compile(models), "Person");
+        Object obj = readJson(c, person);
+        Geometry location = (Geometry) c.getMethod("getLocation").invoke(obj);
+        location.setSRID(4326);
+
+        Object copy = readFrom(c, writeTo(obj));
+        assertEquals(writeJson(obj), writeJson(copy));
+
+        Geometry g = (Geometry) c.getMethod("getLocation").invoke(copy);
+        assertTrue(location.equalsExact(g));
+        assertEquals(4326, g.getSRID());
+    }
+
+
+  //**************************************************************************
+  //** testNulls
+  //**************************************************************************
+  /** Used to round-trip models with null values, including a model without
+   *  an id and a lazy model that was never loaded.
+   */
+    @Test
+    public void testNulls() throws Exception {
+        Class<?> c = getClass(compile(models), "Person");
+
+        Object obj = readJson(c, "{}");
+        Object copy = readFrom(c, writeTo(obj));
+        assertNull(c.getMethod("getID").invoke(copy));
+        assertNull(c.getMethod("getName").invoke(copy));
+        assertNull(c.getMethod("getCountry").invoke(copy));
+        assertEquals(writeJson(obj), writeJson(copy));
+
+        obj = readJson(c, "{\"id\": 1, \"managerID\": 3, \"phoneNumbers\": [null]}");
+        copy = readFrom(c, writeTo(obj));
+        assertEquals(writeJson(obj), writeJson(copy));
+    }
+
+
+  //**************************************************************************
+  //** testNumbers
+  //**************************************************************************
+  /** Used to round-trip numbers that require the full width of the
+   *  variable-length encoding, along with a 3D geometry.
+   */
+    @Test
+    public void testNumbers() throws Exception {
+        Class<?> c = getClass(compile(models), "Person");
+        Object obj = readJson(c,
+            "{\"id\": " + Long.MAX_VALUE + ", \"age\": " + Integer.MIN_VALUE + "," +
+            " \"visits\": " + Long.MIN_VALUE + ", \"salary\": -1E+5," +
+            " \"updated\": \"1969-12-31T23:59:59.999Z\", \"ratings\": [" + Integer.MAX_VALUE + "]," +
+            " \"location\": \"POINT Z (1 2 3)\"}"
+        );
+
+        Object copy = readFrom(c, writeTo(obj));
+        assertEquals(writeJson(obj), writeJson(copy));
+        assertEquals(Long.MAX_VALUE, c.getMethod("getID").invoke(copy));
+        assertEquals(Integer.MIN_VALUE, c.getMethod("getAge").invoke(copy));
+        assertEquals(Long.MIN_VALUE, c.getMethod("getVisits").invoke(copy));
+        assertEquals(c.getMethod("getSalary").invoke(obj), c.getMethod("getSalary").invoke(copy));
+
+        Geometry g = (Geometry) c.getMethod("getLocation").invoke(copy);
+        assertEquals(3, g.getCoordinate().z, 0);
+    }
+
+
+  //**************************************************************************
+  //** testSchemaMismatch
+  //**************************************************************************
+  /** Used to verify that readFrom rejects data written by a different
+   *  version of the models. Only the nested Country model is changed.
+   */
+    @Test
+    public void testSchemaMismatch() throws Exception {
+        Class<?> c1 = getClass(compile(models), "Person");
+        Class<?> c2 = getClass(compile(models
+            .replace("com.example.binary", "com.example.binary2")
+            .replace("{\"name\": \"code\", \"type\": \"string\"}", "{\"name\": \"code\", \"type\": \"int\"}")
+        ), "Person");
+
+        byte[] bytes = writeTo(readJson(c1, person));
+        try{
+            readFrom(c2, bytes);
+            fail("Expected schema mismatch");
+        }
+        catch(IOException e){
+            assertEquals("Schema mismatch", e.getMessage());
+        }
+    }
+
+
+  //**************************************************************************
+  //** testCycles
+  //**************************************************************************
+  /** Used to round-trip models that reference each other and a model that
+   *  references itself. Each model should be read once and shared.
+   */
+    @Test
+    public void testCycles() throws Exception {
+        Class<?> c = getClass(compile(models), "Person");
+        Method getManager = c.getMethod("getManager");
+        Method setManager = c.getMethod("setManager", c);
+
+        Object a = readJson(c, "{\"id\": 1, \"name\": \"A\"}");
+        Object b = readJson(c, "{\"id\": 2, \"name\": \"B\"}");
+        setManager.invoke(a, b);
+        setManager.invoke(b, a);
+
+        Object copy = readFrom(c, writeTo(a));
+        Object manager = getManager.invoke(copy);
+        assertEquals("B", c.getMethod("getName").invoke(manager));
+        assertSame(copy, getManager.invoke(manager));
+
+        Object p = readJson(c, "{\"id\": 3}");
+        setManager.invoke(p, p);
+        copy = readFrom(c, writeTo(p));
+        assertSame(copy, getManager.invoke(copy));
+    }
+
+
+  //**************************************************************************
+  //** compile
+  //**************************************************************************
+    private static Class[] compile(String json) throws Exception {
+        return new Compiler(new Parser(json).getModels()).getClasses();
+    }
+
+
+  //**************************************************************************
+  //** getClass
+  //**************************************************************************
+    private static Class<?> getClass(Class[] classes, String name){
+        for (Class c : classes){
+            if (c.getSimpleName().equals(name)) return c;
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+
+  //**************************************************************************
+  //** readJson
+  //**************************************************************************
+    private static Object readJson(Class<?> c, String json) throws Exception {
+        return invoke(c.getMethod("readJson", Reader.class), null, new StringReader(json));
+    }
+
+
+  //**************************************************************************
+  //** writeJson
+  //**************************************************************************
+    private static String writeJson(Object obj) throws Exception {
+        StringBuilder str = new StringBuilder();
+        invoke(obj.getClass().getMethod("writeJson", Appendable.class), obj, str);
+        return str.toString();
+    }
+
+
+  //**************************************************************************
+  //** writeTo
+  //**************************************************************************
+    private static byte[] writeTo(Object obj) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        invoke(obj.getClass().getMethod("writeTo", DataOutput.class), obj, new DataOutputStream(out));
+        return out.toByteArray();
+    }
+
+
+  //**************************************************************************
+  //** readFrom
+  //**************************************************************************
+    private static Object readFrom(Class<?> c, byte[] bytes) throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        Object obj = invoke(c.getMethod("readFrom", DataInput.class), null, in);
+        assertEquals("Unread bytes", 0, in.available());
+        return obj;
+    }
+
+
+  //**************************************************************************
+  //** invoke
+  //**************************************************************************
+  /** Used to invoke a method and unwrap exceptions thrown by the method.
+   */
+    private static Object invoke(Method method, Object obj, Object arg) throws Exception {
+        try{
+            return method.invoke(obj, arg);
+        }
+        catch(java.lang.reflect.InvocationTargetException e){
+            Throwable t = e.getCause();
+            if (t instanceof Exception) throw (Exception) t;
+            throw e;
+        }
+    }
+}
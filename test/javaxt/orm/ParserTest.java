@@ -0,0 +1,164 @@
+package javaxt.orm;
+import java.nio.file.*;
+import javaxt.json.JSONObject;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+//******************************************************************************
+//**  ParserTest
+//******************************************************************************
+/**
+ *   Tests for the Parser. Javascript model files are parsed with both the
+ *   LiteralReader and the script engine to ensure the two produce the same
+ *   json.
+ *
+ ******************************************************************************/
+
+public class ParserTest {
+
+
+  //**************************************************************************
+  //** testExamples
+  //**************************************************************************
+  /** Used to parse the model files in the examples directory.
+   */
+    @Test
+    public void testExamples() throws Exception {
+        for (String file : new String[]{"Contact.js", "Photos.js"}){
+            String js = new String(Files.readAllBytes(Paths.get("examples", file)), "UTF-8");
+            assertEquals(file, parseJavaScript(js), parseLiterals(js));
+        }
+    }
+
+
+  //**************************************************************************
+  //** testComments
+  //**************************************************************************
+  /** Used to parse a script with line and block comments, including comment
+   *  markers inside strings.
+   */
+    @Test
+    public void testComments() throws Exception {
+        String js =
+        "// Models used to test comments\r\n" +
+        "var package = 'com.example.test'; //package name\n" +
+        "/* The models\n" +
+        "   variable */\n" +
+        "var models = { /* inline */\n" +
+        "    Item: { //item\n" +
+        "        fields: [\n" +
+        "            {name: 'url', type: 'string', comment: 'http://example.com/*'} // */\n" +
+        "        ]\n" +
+        "    }\n" +
+        "}\n" +
+        "//end";
+        assertEquals(parseJavaScript(js), parseLiterals(js));
+    }
+
+
+  //**************************************************************************
+  //** testTrailingCommas
+  //**************************************************************************
+  /** Used to parse a script with trailing commas in objects and arrays.
+   */
+    @Test
+    public void testTrailingCommas() throws Exception {
+        String js =
+        "var package = \"com.example.test\", schema = \"app\";\n" +
+        "var models = {\n" +
+        "    Item: {\n" +
+        "        fields: [\n" +
+        "            {name: 'title', type: 'string',},\n" +
+        "            {name: 'count', type: 'int'},\n" +
+        "        ],\n" +
+        "        constraints: [\n" +
+        "            {name: 'title', required: true, length: 75,},\n" +
+        "        ],\n" +
+        "    },\n" +
+        "};";
+        assertEquals(parseJavaScript(js), parseLiterals(js));
+    }
+
+
+  //**************************************************************************
+  //** testStrings
+  //**************************************************************************
+  /** Used to parse single and double quoted strings with escape sequences.
+   */
+    @Test
+    public void testStrings() throws Exception {
+        String js =
+        "var package = 'com.example.test';\n" +
+        "var models = {\n" +
+        "    'Item': {\n" +
+        "        \"fields\": [\n" +
+        "            {name: 'a', type: 'string', comment: 'It\\'s a \"test\"\\n\\t\\u00e9\\x41'},\n" +
+        "            {name: \"b\", type: \"string\", comment: \"C:\\\\temp \\\"x\\\" 'y' \\/\"},\n" +
+        "            {name: 'c', type: 'string', comment: 'line \\\n" +
+        "continued'}\n" +
+        "        ]\n" +
+        "    }\n" +
+        "}";
+        assertEquals(parseJavaScript(js), parseLiterals(js));
+
+        JSONObject item = Parser.parseLiterals(js).get("models").toJSONObject().get("Item").toJSONObject();
+        String comment = item.get("fields").toJSONArray().get(0).toJSONObject().get("comment").toString();
+        assertEquals("It's a \"test\"\n\t\u00e9A", comment);
+    }
+
+
+  //**************************************************************************
+  //** testFallback
+  //**************************************************************************
+  /** Used to parse scripts that can only be evaluated by the script engine.
+   */
+    @Test
+    public void testFallback() throws Exception {
+        String[] scripts = new String[]{
+
+          //Function call
+            "var package = ['com', 'example', 'test'].join('.');\n" +
+            "var models = {Item: {fields: [{name: 'title', type: 'string'}]}};",
+
+          //Expression
+            "var package = 'com.example.' + 'test';\n" +
+            "var models = {Item: {fields: [{name: 'title', type: 'string'}]}};",
+
+          //Variable reference
+            "var fields = [{name: 'title', type: 'string'}];\n" +
+            "var package = 'com.example.test';\n" +
+            "var models = {Item: {fields: fields}};"
+        };
+
+        for (String js : scripts){
+            assertNull(js, Parser.parseLiterals(js));
+            Model[] models = new Parser(js).getModels();
+            assertEquals(1, models.length);
+            assertEquals("Item", models[0].getName());
+            assertEquals("com.example.test", models[0].getPackageName());
+        }
+    }
+
+
+  //**************************************************************************
+  //** parseLiterals
+  //**************************************************************************
+  /** Returns the json produced by the LiteralReader. Fails if the script
+   *  could not be parsed without a script engine.
+   */
+    private static String parseLiterals(String js){
+        JSONObject json = Parser.parseLiterals(js);
+        assertNotNull("Script requires a script engine", json);
+        return json.toString();
+    }
+
+
+  //**************************************************************************
+  //** parseJavaScript
+  //**************************************************************************
+  /** Returns the json produced by the script engine.
+   */
+    private static String parseJavaScript(String js) throws Exception {
+        return Parser.parseJavaScript(js).toString();
+    }
+}